@@ -0,0 +1,232 @@
+package com.example.android.popularmovies.data;
+
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs MovieDao against an in-memory movie-db.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieDaoTest {
+    private static final String POPULAR = "popular";
+    private static final String TOP_RATED = "top_rated";
+
+    private MovieDatabase database;
+    private MovieDao dao;
+
+    @Before
+    public void setUp() {
+        database = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getTargetContext(),
+                MovieDatabase.class)
+                .build();
+        dao = database.movieDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void unchangedPageWritesNothing() {
+        assertEquals(4, dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"),
+                movie(13, "Forrest Gump")), 1000));
+
+        assertEquals(0, dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"),
+                movie(13, "Forrest Gump")), 2000));
+        assertEquals(2000, dao.getPageFetchedAt(POPULAR, 1));
+    }
+
+    @Test
+    public void changedRowIsUpdatedInPlace() {
+        dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"), movie(13, "Forrest Gump")),
+                1000);
+        dao.insertFavorite(new Favorite(550, 1000));
+
+        assertEquals(1, dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club (1999)"),
+                movie(13, "Forrest Gump")), 2000));
+
+        List<Movie> stored = movies(dao.getRankedAfter(POPULAR, -1, MovieDao.PAGE_SIZE));
+        assertEquals("Fight Club (1999)", stored.get(0).getTitle());
+        assertEquals("Forrest Gump", stored.get(1).getTitle());
+        // An update, not a REPLACE that would cascade to the favorite
+        assertEquals(Collections.singletonList(550), ids("SELECT movieId FROM Favorite"));
+    }
+
+    @Test
+    public void reorderedPageOnlyRewritesRanks() {
+        dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"), movie(13, "Forrest Gump")),
+                1000);
+
+        assertEquals(2, dao.insertPage(POPULAR, 1, page(movie(13, "Forrest Gump"),
+                movie(550, "Fight Club")), 2000));
+        assertEquals(Arrays.asList(13, 550), dao.getRankedMovieIds(POPULAR, 2));
+    }
+
+    @Test
+    public void rankedSlicesContinueAfterTheLastPosition() {
+        insertPages(POPULAR, 8);
+
+        List<RankedMovie> first = dao.getRankedAfter(POPULAR, -1, 30);
+        assertEquals(30, first.size());
+        assertEquals(0, first.get(0).getPosition());
+        assertEquals(29, first.get(29).getPosition());
+        List<RankedMovie> next = dao.getRankedAfter(POPULAR, 29, 30);
+        assertEquals(30, next.get(0).getPosition());
+        assertEquals(movieId(POPULAR, 30), next.get(0).getMovie().getId());
+        // Capped to MAX_SLICE_SIZE, and at least one row
+        assertEquals(MovieDao.MAX_SLICE_SIZE, dao.getRankedAfter(POPULAR, -1, 1000).size());
+        assertEquals(1, dao.getRankedAfter(POPULAR, -1, 0).size());
+        // Another feed's ranks aren't mixed in
+        assertEquals(Collections.emptyList(), dao.getRankedAfter(TOP_RATED, -1, 30));
+    }
+
+    @Test
+    public void contiguousRanksEndAtTheFirstHole() {
+        insertPages(POPULAR, 3);
+        assertEquals(3 * MovieDao.PAGE_SIZE, dao.countContiguousRanks(POPULAR, 3));
+        assertEquals(MovieDao.PAGE_SIZE, dao.countContiguousRanks(POPULAR, 1));
+
+        // Page 2 came back short
+        List<Movie> shortPage = new ArrayList<>();
+        for (int i = 0; i < MovieDao.PAGE_SIZE - 5; i++) {
+            shortPage.add(movie(movieId(POPULAR, MovieDao.PAGE_SIZE + i), "Movie"));
+        }
+        dao.insertPage(POPULAR, 2, shortPage, 2000);
+        assertEquals(2 * MovieDao.PAGE_SIZE - 5, dao.countContiguousRanks(POPULAR, 3));
+    }
+
+    @Test
+    public void evictionNeverRemovesFavorites() {
+        dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"), movie(13, "Forrest Gump"),
+                movie(680, "Pulp Fiction")), 1000);
+        dao.insertFavorite(new Favorite(13, 1000));
+
+        // Everything expired and no room left
+        assertEquals(2, dao.evictMovies(Long.MAX_VALUE, 0, 0));
+        assertEquals(Collections.singletonList(13), ids("SELECT id FROM Movie"));
+        assertEquals(0, dao.countEvictable());
+    }
+
+    @Test
+    public void expiredMoviesGoFirstThenLeastRecentlyUsed() {
+        dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"), movie(13, "Forrest Gump")),
+                1000);
+        dao.insertPage(POPULAR, 2, page(movie(680, "Pulp Fiction"), movie(155, "The Dark Knight")),
+                1000);
+        dao.insertPage(TOP_RATED, 1, page(movie(278, "The Shawshank Redemption")), 500);
+        dao.updateAccessedAt(Collections.singletonList(550), 5000);
+        dao.updateAccessedAt(Collections.singletonList(13), 3000);
+        dao.updateAccessedAt(Collections.singletonList(680), 4000);
+        dao.updateAccessedAt(Collections.singletonList(155), 2000);
+        // Shown last, but downloaded before the expiry time
+        dao.updateAccessedAt(Collections.singletonList(278), 9000);
+
+        assertEquals(3, dao.evictMovies(800, 2, Long.MAX_VALUE));
+        assertEquals(Arrays.asList(550, 680), ids("SELECT id FROM Movie ORDER BY id"));
+    }
+
+    @Test
+    public void byteCapEvictsLeastRecentlyUsedUntilItHolds() {
+        dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"), movie(13, "Forrest Gump"),
+                movie(680, "Pulp Fiction")), 1000);
+        dao.updateAccessedAt(Collections.singletonList(550), 3000);
+        dao.updateAccessedAt(Collections.singletonList(13), 2000);
+        dao.updateAccessedAt(Collections.singletonList(680), 4000);
+
+        assertEquals(1, dao.evictMovies(0, 100, dao.sumEvictableBytes() - 1));
+        assertEquals(Arrays.asList(550, 680), ids("SELECT id FROM Movie ORDER BY id"));
+    }
+
+    @Test
+    public void evictedMovieTakesItsPageRanksReviewsAndVideos() {
+        dao.insertPage(POPULAR, 1, page(movie(550, "Fight Club"), movie(13, "Forrest Gump")),
+                1000);
+        dao.insertPage(TOP_RATED, 1, page(movie(13, "Forrest Gump")), 1000);
+        Movie details = movie(550, "Fight Club");
+        details.setReviews(new Movies.Reviews(Collections.singletonList(
+                new Review("Author", "Review of Fight Club"))));
+        details.setVideos(new Movies.Videos(Collections.singletonList(
+                new Trailer("SUXWAEX2jlg", "Trailer", "Trailer"))));
+        dao.insertMovieDetails(details);
+        dao.updateAccessedAt(Collections.singletonList(550), 500);
+
+        assertEquals(1, dao.evictMovies(0, 1, Long.MAX_VALUE));
+        assertEquals(Collections.singletonList(13), ids("SELECT id FROM Movie"));
+        assertEquals(Collections.emptyList(), ids("SELECT movieId FROM MovieReview"));
+        assertEquals(Collections.emptyList(), ids("SELECT movieId FROM MovieVideo"));
+        assertEquals(Collections.singletonList(13), ids("SELECT movieId FROM MovieCacheEntry"));
+        assertEquals(Collections.emptyList(),
+                ids("SELECT docid FROM MovieFts WHERE MovieFts MATCH 'fight'"));
+        // The popular page can't be shown without 550, top rated still can
+        assertEquals(Collections.singletonList(13), ids("SELECT movieId FROM MovieRank"));
+        assertEquals(Collections.singletonList(1),
+                ids("SELECT page FROM FeedPage WHERE sortBy = '" + TOP_RATED + "'"));
+        assertEquals(Collections.emptyList(),
+                ids("SELECT page FROM FeedPage WHERE sortBy = '" + POPULAR + "'"));
+    }
+
+    private void insertPages(String sortBy, int pageCount) {
+        for (int page = 1; page <= pageCount; page++) {
+            List<Movie> movies = new ArrayList<>();
+            for (int i = 0; i < MovieDao.PAGE_SIZE; i++) {
+                int position = (page - 1) * MovieDao.PAGE_SIZE + i;
+                movies.add(movie(movieId(sortBy, position), "Movie " + position));
+            }
+            dao.insertPage(sortBy, page, movies, 1000);
+        }
+    }
+
+    // Distinct positive ids, each feed its own
+    private static int movieId(String sortBy, int position) {
+        return (sortBy.equals(POPULAR) ? 100000 : 200000) + position;
+    }
+
+    // First column of every row, read straight from the tables
+    private List<Integer> ids(String query) {
+        List<Integer> ids = new ArrayList<>();
+        try (Cursor cursor = database.query(query, null)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
+        }
+        return ids;
+    }
+
+    static Movie movie(int id, String title) {
+        Movie movie = new Movie();
+        movie.setId(id);
+        movie.setTitle(title);
+        movie.setPosterPath("/" + id + ".jpg");
+        movie.setOverview("Overview of " + title);
+        movie.setVoteAverage(7.5f);
+        return movie;
+    }
+
+    static List<Movie> page(Movie... movies) {
+        return Arrays.asList(movies);
+    }
+
+    private static List<Movie> movies(List<RankedMovie> ranked) {
+        List<Movie> movies = new ArrayList<>(ranked.size());
+        for (RankedMovie rankedMovie : ranked) {
+            movies.add(rankedMovie.getMovie());
+        }
+        return movies;
+    }
+}
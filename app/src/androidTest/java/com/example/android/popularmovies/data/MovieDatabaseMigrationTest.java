@@ -0,0 +1,135 @@
+package com.example.android.popularmovies.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Opens a movie-db written by version 5 of the schema with the current MovieDatabase.
+ * The schema isn't exported, so the old database is built from the first Movie table
+ * and the migrations up to 5.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieDatabaseMigrationTest {
+    private static final String TEST_DB = "migration-test";
+
+    private Context context;
+    private MovieDatabase database;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void migrationFrom5KeepsStoredRows() {
+        SupportSQLiteOpenHelper helper = openVersion5();
+        SupportSQLiteDatabase old = helper.getWritableDatabase();
+        old.execSQL("INSERT INTO Movie (id, posterPath, backdropPath, title, voteAverage, "
+                + "overview, releaseDate) VALUES (550, '/550.jpg', '/550-backdrop.jpg', "
+                + "'Fight Club', '8.4', 'An insomniac office worker', '1999-10-15')");
+        old.execSQL("INSERT INTO Movie (id, posterPath, backdropPath, title, voteAverage, "
+                + "overview, releaseDate) VALUES (13, '/13.jpg', NULL, 'Forrest Gump', "
+                + "'8.5', NULL, '')");
+        old.execSQL("INSERT INTO FeedPage (sortBy, page, fetchedAt) VALUES ('popular', 1, 1000)");
+        old.execSQL("INSERT INTO MovieRank (sortBy, position, page, movieId) "
+                + "VALUES ('popular', 0, 1, 550)");
+        old.execSQL("INSERT INTO MovieReview (movieId, position, author, content) "
+                + "VALUES (550, 0, 'Author', 'Review of Fight Club')");
+        old.execSQL("INSERT INTO MovieVideo (movieId, position, `key`, name, site, type) "
+                + "VALUES (550, 0, 'SUXWAEX2jlg', 'Trailer', 'YouTube', 'Trailer')");
+        helper.close();
+
+        database = Room.databaseBuilder(context, MovieDatabase.class, TEST_DB)
+                .addMigrations(MovieDatabase.MIGRATION_1_2, MovieDatabase.MIGRATION_2_3,
+                        MovieDatabase.MIGRATION_3_4, MovieDatabase.MIGRATION_4_5,
+                        MovieDatabase.MIGRATION_5_6, MovieDatabase.MIGRATION_6_7,
+                        MovieDatabase.MIGRATION_7_8)
+                .allowMainThreadQueries()
+                .build();
+        MovieDao dao = database.movieDao();
+
+        List<RankedMovie> ranked = dao.getRankedAfter("popular", -1, MovieDao.PAGE_SIZE);
+        assertEquals(1, ranked.size());
+        Movie fightClub = ranked.get(0).getMovie();
+        assertEquals("Fight Club", fightClub.getTitle());
+        assertEquals(8.4f, fightClub.getVoteAverage(), 0.001f);
+        assertEquals(10879, fightClub.getReleaseDate());
+        assertEquals(1000, dao.getPageFetchedAt("popular", 1));
+        assertEquals(Arrays.asList(13, 550), ids("SELECT id FROM Movie ORDER BY id"));
+        assertEquals(Collections.singletonList(550), ids("SELECT movieId FROM MovieReview"));
+        assertEquals(Collections.singletonList(550), ids("SELECT movieId FROM MovieVideo"));
+        assertEquals(Collections.singletonList(550),
+                ids("SELECT docid FROM MovieFts WHERE MovieFts MATCH 'fight'"));
+        // Cache entries get the download time of their page, unranked movies 0
+        assertEquals(Arrays.asList(0, 1000),
+                ids("SELECT fetchedAt FROM MovieCacheEntry ORDER BY movieId"));
+        assertEquals(2, dao.countEvictable());
+    }
+
+    private SupportSQLiteOpenHelper openVersion5() {
+        SupportSQLiteOpenHelper.Configuration configuration =
+                SupportSQLiteOpenHelper.Configuration.builder(context)
+                        .name(TEST_DB)
+                        .callback(new SupportSQLiteOpenHelper.Callback(5) {
+                            @Override
+                            public void onCreate(SupportSQLiteDatabase db) {
+                                // The Movie table of version 1
+                                db.execSQL("CREATE TABLE IF NOT EXISTS `Movie` ("
+                                        + "`id` INTEGER NOT NULL, `posterPath` TEXT, "
+                                        + "`backdropPath` TEXT, `title` TEXT, "
+                                        + "`voteAverage` TEXT, `overview` TEXT, "
+                                        + "`releaseDate` TEXT, PRIMARY KEY(`id`))");
+                                MovieDatabase.MIGRATION_1_2.migrate(db);
+                                MovieDatabase.MIGRATION_2_3.migrate(db);
+                                MovieDatabase.MIGRATION_3_4.migrate(db);
+                                MovieDatabase.MIGRATION_4_5.migrate(db);
+                            }
+
+                            @Override
+                            public void onUpgrade(SupportSQLiteDatabase db, int oldVersion,
+                                                  int newVersion) {
+                            }
+                        })
+                        .build();
+        return new FrameworkSQLiteOpenHelperFactory().create(configuration);
+    }
+
+    // First column of every row, read straight from the tables
+    private List<Integer> ids(String query) {
+        List<Integer> ids = new ArrayList<>();
+        try (Cursor cursor = database.query(query, null)) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.Nullable;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Converts TMDb's release dates ("1999-10-15") to days since 1970-01-01 and back.
+ * Movie stores the day number, so dates sort and range-filter as integers in SQL.
+ * java.time needs API 26, the conversion is done with the proleptic Gregorian
+ * calendar it uses.
+ */
+public final class EpochDays {
+    /**
+     * Release date of a movie TMDb has none for. Sorts before every real date.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final String[] MONTHS = {"January", "February", "March", "April", "May",
+            "June", "July", "August", "September", "October", "November", "December"};
+
+    private EpochDays() {
+    }
+
+    /**
+     * @param date yyyy-MM-dd, may be null or empty
+     * @return days since 1970-01-01, NONE if date isn't a valid date
+     */
+    public static int parse(@Nullable String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-'
+                || date.charAt(7) != '-') {
+            return NONE;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > daysInMonth(year, month)) {
+            return NONE;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * @return yyyy-MM-dd, null for NONE
+     */
+    @Nullable
+    public static String toIsoString(int epochDay) {
+        if (epochDay == NONE) {
+            return null;
+        }
+        int[] date = toDate(epochDay);
+        return String.format(Locale.ROOT, "%04d-%02d-%02d", date[0], date[1], date[2]);
+    }
+
+    /**
+     * @return the date as shown on the detail screen, "October 15, 1999", or an empty
+     * string for NONE
+     */
+    public static String toDisplayString(int epochDay) {
+        if (epochDay == NONE) {
+            return "";
+        }
+        int[] date = toDate(epochDay);
+        return MONTHS[date[1] - 1] + " " + date[2] + ", " + date[0];
+    }
+
+    // Howard Hinnant's days_from_civil
+    private static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // and civil_from_days, returns {year, month, day}
+    private static int[] toDate(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return new int[]{year, month, day};
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * @return the number in date[start, end), -1 if a character isn't a digit
+     */
+    private static int digits(String date, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = date.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Reads and writes the release_date field for Gson's reflective path.
+     */
+    static final class JsonAdapter extends TypeAdapter<Integer> {
+        @Override
+        public void write(JsonWriter out, Integer epochDay) throws IOException {
+            out.value(epochDay == null ? null : toIsoString(epochDay));
+        }
+
+        @Override
+        public Integer read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return NONE;
+            }
+            return parse(in.nextString());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.android.popularmovies.data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.PrimaryKey;
+
+/**
+ * A movie the user marked as favorite. Favorites are never evicted from the cache, so
+ * they stay available offline.
+ */
+@Entity(foreignKeys = @ForeignKey(entity = Movie.class,
+        parentColumns = "id",
+        childColumns = "movieId",
+        onDelete = ForeignKey.CASCADE))
+public class Favorite {
+    @PrimaryKey
+    private int movieId;
+    // Time in millis when the movie was marked
+    private long addedAt;
+
+    public Favorite(int movieId, long addedAt) {
+        this.movieId = movieId;
+        this.addedAt = addedAt;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public long getAddedAt() {
+        return addedAt;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * Download time of one cached page of a sorted feed. Kept apart from MovieRank so a
+ * refresh that finds the page unchanged doesn't write to the tables the list observes.
+ */
+@Entity(primaryKeys = {"sortBy", "page"})
+public class FeedPage {
+    @NonNull
+    private String sortBy;
+    private int page;
+    // Time in millis when the page was last downloaded
+    private long fetchedAt;
+
+    public FeedPage(@NonNull String sortBy, int page, long fetchedAt) {
+        this.sortBy = sortBy;
+        this.page = page;
+        this.fetchedAt = fetchedAt;
+    }
+
+    @NonNull
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.android.popularmovies.data;
+
+/**
+ * Picks the TMDb image size to download for a view. TMDb scales every image to a
+ * fixed set of widths, the smallest one at least as wide as the view is the sharpest
+ * image that costs no extra bytes to download and decode.
+ */
+public final class ImageSize {
+    // The sizes TMDb's /configuration lists, besides "original"
+    private static final int[] POSTER_WIDTHS = {92, 154, 185, 342, 500, 780};
+    private static final int[] BACKDROP_WIDTHS = {300, 780, 1280};
+    private static final String ORIGINAL = "original";
+
+    private ImageSize() {
+    }
+
+    /**
+     * @param widthPx width the poster is shown at, in pixels
+     * @return path segment of the poster size, "w185" for instance
+     */
+    public static String forPoster(int widthPx) {
+        return smallestCovering(POSTER_WIDTHS, widthPx);
+    }
+
+    /**
+     * @param widthPx width the backdrop is shown at, in pixels
+     * @return path segment of the backdrop size, "w1280" for instance
+     */
+    public static String forBackdrop(int widthPx) {
+        return smallestCovering(BACKDROP_WIDTHS, widthPx);
+    }
+
+    private static String smallestCovering(int[] widths, int widthPx) {
+        for (int width : widths) {
+            if (width >= widthPx) {
+                return "w" + width;
+            }
+        }
+        return ORIGINAL;
+    }
+}
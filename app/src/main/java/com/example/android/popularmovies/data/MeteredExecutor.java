@@ -0,0 +1,109 @@
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs tasks on a fixed number of threads and counts how long they queue, so a pool
+ * that falls behind shows up in the logs before it shows up as a slow grid.
+ */
+public class MeteredExecutor implements Executor {
+
+    private final ExecutorService threads;
+    private final String name;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final AtomicLong taskCount = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong longestWaitNanos = new AtomicLong();
+
+    /**
+     * @param name prefix of the thread names, and of toString
+     * @param threadCount tasks run at the same time at most
+     */
+    public MeteredExecutor(String name, int threadCount) {
+        this.name = name;
+        AtomicInteger threadNumber = new AtomicInteger();
+        threads = Executors.newFixedThreadPool(threadCount, task -> {
+            Thread thread = new Thread(task, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        long queuedAt = System.nanoTime();
+        updateMax(maxQueueDepth, queueDepth.incrementAndGet());
+        threads.execute(() -> {
+            queueDepth.decrementAndGet();
+            long waited = System.nanoTime() - queuedAt;
+            taskCount.incrementAndGet();
+            waitNanos.addAndGet(waited);
+            updateMax(longestWaitNanos, waited);
+            task.run();
+        });
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return tasks waiting for a thread right now
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return most tasks that were waiting for a thread at once
+     */
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return tasks that got a thread
+     */
+    public long getTaskCount() {
+        return taskCount.get();
+    }
+
+    /**
+     * @return average time from execute until the task started, 0 before the first task
+     */
+    public double getAverageWaitMillis() {
+        long tasks = getTaskCount();
+        return tasks == 0 ? 0 : waitNanos.get() / 1e6 / tasks;
+    }
+
+    /**
+     * @return longest time a task waited for a thread
+     */
+    public double getLongestWaitMillis() {
+        return longestWaitNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH,
+                "%s: %d tasks, queued now=%d max=%d, wait avg=%.1f ms max=%.1f ms",
+                name,
+                getTaskCount(),
+                getQueueDepth(),
+                getMaxQueueDepth(),
+                getAverageWaitMillis(),
+                getLongestWaitMillis());
+    }
+}
@@ -6,9 +6,11 @@ import androidx.room.Entity;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 
-import com.example.android.popularmovies.data.Movies.Review;
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Objects;
+
 @Entity
 public class Movie {
     @PrimaryKey
@@ -21,22 +23,20 @@ public class Movie {
     private String backdropPath;
     private String title;
     @SerializedName("vote_average")
-    private String voteAverage;
+    private float voteAverage;
     private String overview;
+    // Days since 1970-01-01, EpochDays.NONE if TMDb has no date
     @SerializedName("release_date")
-    private String releaseDate;
+    @JsonAdapter(EpochDays.JsonAdapter.class)
+    private int releaseDate = EpochDays.NONE;
 
     private final static String IMAGE_BASE_URL = "https://image.tmdb.org/t/p/";
-    private final static String IMAGE_SIZE = "w342";
-    /**
-     * TODO 7/1/2019 NEW FEAT: Following fields require type converters in order
-     *  to be restored in Room database - Emre
-     */
+    // Stored as MovieReview and MovieVideo rows by MovieDao.insertMovieDetails
     @Ignore
-    private Review reviews;
+    private Movies.Reviews reviews;
 
     @Ignore
-    private Movies.Video videos;
+    private Movies.Videos videos;
 
     public Movie() {
     }
@@ -49,15 +49,23 @@ public class Movie {
         this.id = id;
     }
 
-    public Review getReviews() {
+    public Movies.Reviews getReviews() {
         return reviews;
     }
 
-    public Movies.Video getVideos() {
+    public Movies.Videos getVideos() {
         return videos;
     }
 
-    String getPosterPath() {
+    void setReviews(Movies.Reviews reviews) {
+        this.reviews = reviews;
+    }
+
+    void setVideos(Movies.Videos videos) {
+        this.videos = videos;
+    }
+
+    public String getPosterPath() {
         return posterPath;
     }
 
@@ -69,7 +77,7 @@ public class Movie {
         return title;
     }
 
-    public String getVoteAverage() {
+    public float getVoteAverage() {
         return voteAverage;
     }
 
@@ -77,7 +85,10 @@ public class Movie {
         return overview;
     }
 
-    public String getReleaseDate() {
+    /**
+     * @return days since 1970-01-01, EpochDays.NONE if unknown
+     */
+    public int getReleaseDate() {
         return releaseDate;
     }
 
@@ -93,7 +104,7 @@ public class Movie {
         this.title = title;
     }
 
-    void setVoteAverage(String voteAverage) {
+    void setVoteAverage(float voteAverage) {
         this.voteAverage = voteAverage;
     }
 
@@ -101,13 +112,29 @@ public class Movie {
         this.overview = overview;
     }
 
-    void setReleaseDate(String releaseDate) {
+    void setReleaseDate(int releaseDate) {
         this.releaseDate = releaseDate;
     }
 
-    public String getPosterUriString() {
+    /**
+     * @return true if both movies would be stored as the same Movie row
+     */
+    boolean hasSameColumns(Movie other) {
+        return id == other.id
+                && Objects.equals(posterPath, other.posterPath)
+                && Objects.equals(backdropPath, other.backdropPath)
+                && Objects.equals(title, other.title)
+                && voteAverage == other.voteAverage
+                && Objects.equals(overview, other.overview)
+                && releaseDate == other.releaseDate;
+    }
+
+    /**
+     * @param widthPx width the poster is shown at, picks the TMDb size to download
+     */
+    public String getPosterUriString(int widthPx) {
         Uri builtUri = Uri.parse(IMAGE_BASE_URL).buildUpon()
-                .appendPath(IMAGE_SIZE)
+                .appendPath(ImageSize.forPoster(widthPx))
                 // "%2 is added to the front of each path. This needs to be removed
                 .appendPath(posterPath.substring(1))
                 .build();
@@ -115,9 +142,12 @@ public class Movie {
         return builtUri.toString();
     }
 
-    public String getBackdropUriString() {
+    /**
+     * @param widthPx width the backdrop is shown at, picks the TMDb size to download
+     */
+    public String getBackdropUriString(int widthPx) {
         Uri builtUri = Uri.parse(IMAGE_BASE_URL).buildUpon()
-                .appendPath(IMAGE_SIZE)
+                .appendPath(ImageSize.forBackdrop(widthPx))
                 .appendPath(backdropPath.substring(1))
                 .build();
 
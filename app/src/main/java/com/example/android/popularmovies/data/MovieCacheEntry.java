@@ -0,0 +1,88 @@
+package com.example.android.popularmovies.data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Cache bookkeeping of a stored movie, used to pick the movies to evict. It is kept
+ * out of Movie, so recording an access doesn't wake up the screens observing movies.
+ */
+@Entity(foreignKeys = @ForeignKey(entity = Movie.class,
+                parentColumns = "id",
+                childColumns = "movieId",
+                onDelete = ForeignKey.CASCADE),
+        indices = {@Index("accessedAt"), @Index("fetchedAt")})
+public class MovieCacheEntry {
+    // Rough per-row cost of the columns that aren't text, and of the indexes
+    private static final int ROW_OVERHEAD_BYTES = 64;
+    // Rating and release date of a movie
+    private static final int NUMBER_COLUMNS_BYTES = 16;
+
+    @PrimaryKey
+    private int movieId;
+    // Time in millis when the movie was last downloaded
+    private long fetchedAt;
+    // Time in millis when the movie was last shown
+    private long accessedAt;
+    // Estimated size of the movie with its reviews and videos
+    private long bytes;
+
+    public MovieCacheEntry(int movieId, long fetchedAt, long accessedAt, long bytes) {
+        this.movieId = movieId;
+        this.fetchedAt = fetchedAt;
+        this.accessedAt = accessedAt;
+        this.bytes = bytes;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getAccessedAt() {
+        return accessedAt;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Estimates the bytes a movie takes in the database from the length of its text,
+     * including the reviews and videos it was downloaded with.
+     */
+    static long estimateBytes(Movie movie) {
+        long bytes = ROW_OVERHEAD_BYTES
+                + length(movie.getPosterPath())
+                + length(movie.getBackdropPath())
+                + length(movie.getTitle())
+                + length(movie.getOverview())
+                + NUMBER_COLUMNS_BYTES;
+        if (movie.getReviews() != null) {
+            for (Review review : movie.getReviews().getResults()) {
+                bytes += ROW_OVERHEAD_BYTES
+                        + length(review.getAuthor())
+                        + length(review.getContent());
+            }
+        }
+        if (movie.getVideos() != null) {
+            for (Trailer trailer : movie.getVideos().getResults()) {
+                bytes += ROW_OVERHEAD_BYTES
+                        + length(trailer.getKey())
+                        + length(trailer.getName())
+                        + Trailer.SITE_YOUTUBE.length()
+                        + length(trailer.getType());
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+}
@@ -1,32 +1,381 @@
 package com.example.android.popularmovies.data;
 
+import android.util.SparseArray;
+
 import androidx.lifecycle.LiveData;
+import androidx.paging.DataSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Update;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Dao
-public interface MovieDao {
+public abstract class MovieDao {
+    // TMDb always returns 20 results per page
+    public static final int PAGE_SIZE = 20;
+    // Largest slice a keyset query returns, whatever the caller asks for
+    public static final int MAX_SLICE_SIZE = 100;
+    // Favorites are never evicted
+    private static final String NOT_FAVORITE = "movieId NOT IN (SELECT movieId FROM Favorite)";
 
+    /**
+     * Loads the whole table and reloads it after every write, prefer the keyset
+     * slices below for anything that can grow.
+     */
     @Query("SELECT * FROM Movie")
-    LiveData<List<Movie>> getMovies();
+    public abstract LiveData<List<Movie>> getMovies();
+
+    @Query("SELECT * FROM Movie WHERE id = :id")
+    public abstract LiveData<Movie> getMovie(int id);
 
+    /**
+     * Pages the user's favorites, the most recently added first. They are never
+     * evicted, so the list works offline.
+     */
+    @Query("SELECT Movie.* FROM Favorite INNER JOIN Movie ON Movie.id = Favorite.movieId "
+            + "ORDER BY Favorite.addedAt DESC, Movie.id")
+    public abstract DataSource.Factory<Integer, Movie> getFavoriteMovies();
+
+    /**
+     * A movie with its reviews and videos, null until the movie is stored.
+     */
+    @Transaction
     @Query("SELECT * FROM Movie WHERE id = :id")
-    LiveData<Movie> getMovie(int id);
+    public abstract LiveData<MovieWithExtras> getMovieWithExtras(int id);
+
+    /**
+     * Keyset slices of a sorted feed. They seek on MovieRank's primary key
+     * (sortBy, position) instead of skipping rows with OFFSET, so a slice costs the
+     * same at the end of a long feed as at the start.
+     */
+    @Query("SELECT Movie.*, MovieRank.position AS position FROM MovieRank "
+            + "INNER JOIN Movie ON Movie.id = MovieRank.movieId "
+            + "WHERE MovieRank.sortBy = :sortBy AND MovieRank.position > :afterPosition "
+            + "ORDER BY MovieRank.position LIMIT :limit")
+    abstract List<RankedMovie> queryRankedAfter(String sortBy, int afterPosition, int limit);
+
+    @Query("SELECT IFNULL(MAX(position) + 1 - COUNT(*), 0) FROM MovieRank "
+            + "WHERE sortBy = :sortBy AND page <= :lastPage")
+    abstract int countMissingRanks(String sortBy, int lastPage);
+
+    @Query("SELECT COUNT(*) FROM MovieRank WHERE sortBy = :sortBy AND page <= :lastPage")
+    abstract int countRanks(String sortBy, int lastPage);
+
+    // Start of the first hole in the positions, each row checks its successor
+    @Query("SELECT IFNULL(MIN(r.position) + 1, 0) FROM MovieRank AS r "
+            + "WHERE r.sortBy = :sortBy AND r.page <= :lastPage AND NOT EXISTS ("
+            + "SELECT 1 FROM MovieRank AS n WHERE n.sortBy = :sortBy "
+            + "AND n.position = r.position + 1 AND n.page <= :lastPage)")
+    abstract int queryFirstRankGap(String sortBy, int lastPage);
+
+    /**
+     * @return the download time of a cached page, or 0 if the page isn't cached
+     */
+    @Query("SELECT fetchedAt FROM FeedPage WHERE sortBy = :sortBy AND page = :page")
+    public abstract long getPageFetchedAt(String sortBy, int page);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM Favorite WHERE movieId = :movieId)")
+    public abstract LiveData<Boolean> isFavorite(int movieId);
+
+    /**
+     * Non-favorite cache entries by least recent access, a keyset slice ordered by
+     * (accessedAt, movieId).
+     */
+    @Query("SELECT * FROM MovieCacheEntry WHERE " + NOT_FAVORITE + " AND "
+            + "(accessedAt > :afterAccessedAt "
+            + "OR (accessedAt = :afterAccessedAt AND movieId > :afterId)) "
+            + "ORDER BY accessedAt, movieId LIMIT :limit")
+    abstract List<MovieCacheEntry> queryLeastRecentlyUsed(long afterAccessedAt, int afterId,
+                                                          int limit);
+
+    @Query("SELECT COUNT(*) FROM MovieCacheEntry WHERE " + NOT_FAVORITE)
+    public abstract int countEvictable();
+
+    @Query("SELECT IFNULL(SUM(bytes), 0) FROM MovieCacheEntry WHERE " + NOT_FAVORITE)
+    public abstract long sumEvictableBytes();
+
+    @Query("SELECT * FROM Movie WHERE id IN (:ids)")
+    abstract List<Movie> getMoviesByIds(List<Integer> ids);
+
+    @Query("SELECT movieId FROM MovieRank WHERE sortBy = :sortBy AND page = :page "
+            + "ORDER BY position")
+    abstract List<Integer> getPageMovieIds(String sortBy, int page);
+
+    /**
+     * @return the movie ids of a sorted feed by position, from position 0 up to count
+     */
+    @Query("SELECT movieId FROM MovieRank WHERE sortBy = :sortBy AND position < :count "
+            + "ORDER BY position")
+    public abstract List<Integer> getRankedMovieIds(String sortBy, int count);
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertMovie(Movie movie);
+    abstract void insertRanks(List<MovieRank> ranks);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract long[] insertNewMovies(List<Movie> movies);
+
+    @Update
+    abstract void updateMovies(List<Movie> movies);
+
+    @Insert
+    abstract void insertReviews(List<MovieReview> reviews);
+
+    @Insert
+    abstract void insertVideos(List<MovieVideo> videos);
+
+    @Query("DELETE FROM MovieReview WHERE movieId = :movieId")
+    abstract void deleteReviews(int movieId);
+
+    @Query("DELETE FROM MovieVideo WHERE movieId = :movieId")
+    abstract void deleteVideos(int movieId);
 
-    @Insert(onConflict =  OnConflictStrategy.REPLACE)
-    void insertAllMovies(List<Movie> movies);
+    @Query("DELETE FROM MovieRank WHERE sortBy = :sortBy AND page = :page")
+    abstract void deletePageRanks(String sortBy, int page);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertFeedPage(FeedPage feedPage);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    public abstract void insertFavorite(Favorite favorite);
+
+    @Query("DELETE FROM Favorite WHERE movieId = :movieId")
+    public abstract void deleteFavorite(int movieId);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract void insertCacheEntries(List<MovieCacheEntry> entries);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertCacheEntry(MovieCacheEntry entry);
+
+    @Query("UPDATE MovieCacheEntry SET fetchedAt = :fetchedAt WHERE movieId IN (:ids)")
+    abstract void updateFetchedAt(List<Integer> ids, long fetchedAt);
+
+    /**
+     * Records that movies were shown. At most a few hundred ids per call.
+     */
+    @Query("UPDATE MovieCacheEntry SET accessedAt = :accessedAt WHERE movieId IN (:ids)")
+    public abstract void updateAccessedAt(List<Integer> ids, long accessedAt);
+
+    // A feed page missing one of its movies can't be shown, it is downloaded again
+    @Query("DELETE FROM FeedPage WHERE EXISTS (SELECT 1 FROM MovieRank "
+            + "INNER JOIN MovieCacheEntry ON MovieCacheEntry.movieId = MovieRank.movieId "
+            + "WHERE MovieRank.sortBy = FeedPage.sortBy AND MovieRank.page = FeedPage.page "
+            + "AND MovieCacheEntry.fetchedAt < :fetchedBefore "
+            + "AND MovieRank." + NOT_FAVORITE + ")")
+    abstract void deletePagesOfExpired(long fetchedBefore);
+
+    @Query("DELETE FROM FeedPage WHERE EXISTS (SELECT 1 FROM MovieRank "
+            + "INNER JOIN MovieCacheEntry ON MovieCacheEntry.movieId = MovieRank.movieId "
+            + "WHERE MovieRank.sortBy = FeedPage.sortBy AND MovieRank.page = FeedPage.page "
+            + "AND (MovieCacheEntry.accessedAt < :lastAccessedAt "
+            + "OR (MovieCacheEntry.accessedAt = :lastAccessedAt "
+            + "AND MovieCacheEntry.movieId <= :lastId)) "
+            + "AND MovieRank." + NOT_FAVORITE + ")")
+    abstract void deletePagesOfLeastRecentlyUsed(long lastAccessedAt, int lastId);
+
+    @Query("DELETE FROM MovieRank WHERE NOT EXISTS (SELECT 1 FROM FeedPage "
+            + "WHERE FeedPage.sortBy = MovieRank.sortBy AND FeedPage.page = MovieRank.page)")
+    abstract void deleteRanksWithoutPage();
+
+    // Reviews, videos and cache entries go with the movies through ON DELETE CASCADE
+    @Query("DELETE FROM Movie WHERE id IN (SELECT movieId FROM MovieCacheEntry "
+            + "WHERE fetchedAt < :fetchedBefore AND " + NOT_FAVORITE + ")")
+    abstract void deleteExpiredMovies(long fetchedBefore);
+
+    @Query("DELETE FROM Movie WHERE id IN (SELECT movieId FROM MovieCacheEntry "
+            + "WHERE (accessedAt < :lastAccessedAt "
+            + "OR (accessedAt = :lastAccessedAt AND movieId <= :lastId)) "
+            + "AND " + NOT_FAVORITE + ")")
+    abstract void deleteLeastRecentlyUsedMovies(long lastAccessedAt, int lastId);
 
     @Delete
-    void deleteMovie(Movie movie);
+    public abstract void deleteMovie(Movie movie);
 
     @Delete
-    void deleteAllMovies(List<Movie> movies);
+    public abstract void deleteAllMovies(List<Movie> movies);
+
+    /**
+     * Replaces a cached page of a sorted feed with a page downloaded from TMDb. Only
+     * movies whose shown columns changed are written, and the ranks only if the order
+     * changed, so an unchanged page doesn't wake up observers of Movie or MovieRank.
+     * @param sortBy the sort order the page belongs to
+     * @param page the page number, starting at 1
+     * @param movies the movies in server order
+     * @param fetchedAt download time in millis
+     * @return number of movie and rank rows written
+     */
+    @Transaction
+    public int insertPage(String sortBy, int page, List<Movie> movies, long fetchedAt) {
+        List<Integer> ids = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        SparseArray<Movie> stored = new SparseArray<>(movies.size());
+        for (Movie movie : getMoviesByIds(ids)) {
+            stored.put(movie.getId(), movie);
+        }
+        List<Movie> changed = new ArrayList<>();
+        for (Movie movie : movies) {
+            Movie old = stored.get(movie.getId());
+            if (old == null || !old.hasSameColumns(movie)) {
+                changed.add(movie);
+            }
+        }
+        if (!changed.isEmpty()) {
+            upsertMovies(changed);
+        }
+        int written = changed.size();
+        if (!ids.equals(getPageMovieIds(sortBy, page))) {
+            List<MovieRank> ranks = new ArrayList<>(movies.size());
+            int firstPosition = (page - 1) * PAGE_SIZE;
+            for (int i = 0; i < ids.size(); i++) {
+                ranks.add(new MovieRank(sortBy, firstPosition + i, page, ids.get(i)));
+            }
+            deletePageRanks(sortBy, page);
+            insertRanks(ranks);
+            written += ranks.size();
+        }
+        insertFeedPage(new FeedPage(sortBy, page, fetchedAt));
+        List<MovieCacheEntry> entries = new ArrayList<>(changed.size());
+        for (Movie movie : changed) {
+            entries.add(new MovieCacheEntry(movie.getId(), fetchedAt, fetchedAt,
+                    MovieCacheEntry.estimateBytes(movie)));
+        }
+        insertCacheEntries(entries);
+        updateFetchedAt(ids, fetchedAt);
+        return written;
+    }
+
+    /**
+     * Inserts new movies and updates existing ones in place. Unlike REPLACE this
+     * doesn't delete the old row, which would cascade to its reviews and videos.
+     */
+    @Transaction
+    public void upsertMovies(List<Movie> movies) {
+        long[] rowIds = insertNewMovies(movies);
+        List<Movie> existing = new ArrayList<>();
+        for (int i = 0; i < rowIds.length; i++) {
+            if (rowIds[i] == -1) {
+                existing.add(movies.get(i));
+            }
+        }
+        if (!existing.isEmpty()) {
+            updateMovies(existing);
+        }
+    }
+
+    /**
+     * Stores a movie downloaded from the details endpoint, replacing its reviews and
+     * videos with the downloaded ones. Details are downloaded when the movie is shown,
+     * so this counts as an access.
+     */
+    @Transaction
+    public void insertMovieDetails(Movie movie) {
+        upsertMovies(Collections.singletonList(movie));
+        long now = System.currentTimeMillis();
+        insertCacheEntry(new MovieCacheEntry(movie.getId(), now, now,
+                MovieCacheEntry.estimateBytes(movie)));
+        int movieId = movie.getId();
+        deleteReviews(movieId);
+        deleteVideos(movieId);
+        if (movie.getReviews() != null) {
+            List<Review> results = movie.getReviews().getResults();
+            List<MovieReview> reviews = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                Review review = results.get(i);
+                reviews.add(new MovieReview(movieId, i, review.getAuthor(), review.getContent()));
+            }
+            insertReviews(reviews);
+        }
+        if (movie.getVideos() != null) {
+            List<Trailer> results = movie.getVideos().getResults();
+            List<MovieVideo> videos = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                Trailer trailer = results.get(i);
+                videos.add(new MovieVideo(movieId, i, trailer.getKey(), trailer.getName(),
+                        Trailer.SITE_YOUTUBE, trailer.getType()));
+            }
+            insertVideos(videos);
+        }
+    }
+
+    /**
+     * Reads the movies ranked after a position of a sorted feed, in feed order.
+     * @param afterPosition position of the last movie already read, -1 to start
+     * @param limit slice size, capped to MAX_SLICE_SIZE
+     */
+    public List<RankedMovie> getRankedAfter(String sortBy, int afterPosition, int limit) {
+        return queryRankedAfter(sortBy, afterPosition, clampSlice(limit));
+    }
+
+    private static int clampSlice(int limit) {
+        return Math.max(1, Math.min(limit, MAX_SLICE_SIZE));
+    }
+
+    /**
+     * Counts the ranked movies of a sorted feed whose positions run without a hole
+     * from 0, up to lastPage. Only a page shorter than PAGE_SIZE before the last one
+     * leaves a hole, so the slower search for it only runs when one exists.
+     */
+    @Transaction
+    public int countContiguousRanks(String sortBy, int lastPage) {
+        if (countMissingRanks(sortBy, lastPage) == 0) {
+            return countRanks(sortBy, lastPage);
+        }
+        return queryFirstRankGap(sortBy, lastPage);
+    }
+
+    /**
+     * Shrinks the cache in one transaction. Movies downloaded before expiredBefore go
+     * first, then the least recently shown ones until both caps hold again. Favorites
+     * are never evicted and don't count against the caps. Feed pages that ranked an
+     * evicted movie are dropped with it, so they are downloaded again when scrolled to.
+     * @param expiredBefore time in millis, movies downloaded earlier are evicted
+     * @param maxRows non-favorite movies to keep at most
+     * @param maxBytes estimated bytes of the non-favorite movies to keep at most
+     * @return number of movies evicted
+     */
+    @Transaction
+    public int evictMovies(long expiredBefore, int maxRows, long maxBytes) {
+        int before = countEvictable();
+        deletePagesOfExpired(expiredBefore);
+        deleteRanksWithoutPage();
+        deleteExpiredMovies(expiredBefore);
+        int excessRows = countEvictable() - maxRows;
+        long excessBytes = sumEvictableBytes() - maxBytes;
+        // Walk from the least recently used until enough rows and bytes are covered
+        MovieCacheEntry last = null;
+        long afterAccessedAt = Long.MIN_VALUE;
+        int afterId = Integer.MIN_VALUE;
+        while (excessRows > 0 || excessBytes > 0) {
+            List<MovieCacheEntry> slice =
+                    queryLeastRecentlyUsed(afterAccessedAt, afterId, MAX_SLICE_SIZE);
+            if (slice.isEmpty()) {
+                break;
+            }
+            for (MovieCacheEntry entry : slice) {
+                if (excessRows <= 0 && excessBytes <= 0) {
+                    break;
+                }
+                last = entry;
+                excessRows--;
+                excessBytes -= entry.getBytes();
+            }
+            afterAccessedAt = last.getAccessedAt();
+            afterId = last.getMovieId();
+        }
+        if (last != null) {
+            deletePagesOfLeastRecentlyUsed(last.getAccessedAt(), last.getMovieId());
+            deleteRanksWithoutPage();
+            deleteLeastRecentlyUsedMovies(last.getAccessedAt(), last.getMovieId());
+        }
+        return before - countEvictable();
+    }
 }
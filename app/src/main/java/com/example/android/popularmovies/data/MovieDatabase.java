@@ -2,22 +2,283 @@ package com.example.android.popularmovies.data;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-@Database(entities = {Movie.class}, version=1, exportSchema = false)
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Database(entities = {Movie.class, MovieRank.class, FeedPage.class, MovieReview.class,
+        MovieVideo.class, MovieFts.class, Favorite.class, MovieCacheEntry.class},
+        version=8, exportSchema = false)
 public abstract class MovieDatabase extends RoomDatabase {
+    // Writes arriving this close together share a transaction
+    private static final long WRITE_WINDOW_MS = 50;
+    private static final int MAX_WRITE_BATCH = 32;
+    // WAL lets this many readers run next to the writer
+    private static final int QUERY_THREADS = 3;
+
     private static MovieDatabase INSTANCE;
+    private WriteCoalescer writeCoalescer;
+    private MeteredExecutor queryExecutor;
+    private MeteredExecutor writeExecutor;
     public abstract MovieDao movieDao();
+    public abstract MovieSearchDao movieSearchDao();
+
+    /**
+     * @return the queue all foreground writes go through, committed in batches on
+     * the transaction executor
+     */
+    public synchronized WriteCoalescer getWriteCoalescer() {
+        if (writeCoalescer == null) {
+            writeCoalescer = new WriteCoalescer(this::runInTransaction,
+                    Executors.newSingleThreadScheduledExecutor(),
+                    getTransactionExecutor(), MAX_WRITE_BATCH, WRITE_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+        return writeCoalescer;
+    }
+
+    // Adds the ranking table used to cache sorted pages
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `MovieRank` ("
+                    + "`sortBy` TEXT NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`page` INTEGER NOT NULL, `movieId` INTEGER NOT NULL, "
+                    + "`fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`sortBy`, `position`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_MovieRank_movieId` "
+                    + "ON `MovieRank` (`movieId`)");
+        }
+    };
+
+    // Moves the download time of a page out of MovieRank into FeedPage
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `FeedPage` ("
+                    + "`sortBy` TEXT NOT NULL, `page` INTEGER NOT NULL, "
+                    + "`fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`sortBy`, `page`))");
+            database.execSQL("INSERT INTO `FeedPage` (`sortBy`, `page`, `fetchedAt`) "
+                    + "SELECT `sortBy`, `page`, MIN(`fetchedAt`) FROM `MovieRank` "
+                    + "GROUP BY `sortBy`, `page`");
+            // SQLite can't drop a column, copy the ranks into a table without it
+            database.execSQL("CREATE TABLE IF NOT EXISTS `MovieRank_new` ("
+                    + "`sortBy` TEXT NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`page` INTEGER NOT NULL, `movieId` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`sortBy`, `position`))");
+            database.execSQL("INSERT INTO `MovieRank_new` (`sortBy`, `position`, `page`, `movieId`) "
+                    + "SELECT `sortBy`, `position`, `page`, `movieId` FROM `MovieRank`");
+            database.execSQL("DROP TABLE `MovieRank`");
+            database.execSQL("ALTER TABLE `MovieRank_new` RENAME TO `MovieRank`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_MovieRank_movieId` "
+                    + "ON `MovieRank` (`movieId`)");
+        }
+    };
+
+    // Adds the review and video tables of the detail screen
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `MovieReview` ("
+                    + "`movieId` INTEGER NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`author` TEXT, `content` TEXT, PRIMARY KEY(`movieId`, `position`), "
+                    + "FOREIGN KEY(`movieId`) REFERENCES `Movie`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_MovieReview_movieId` "
+                    + "ON `MovieReview` (`movieId`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `MovieVideo` ("
+                    + "`movieId` INTEGER NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`key` TEXT, `name` TEXT, `site` TEXT, `type` TEXT, "
+                    + "PRIMARY KEY(`movieId`, `position`), "
+                    + "FOREIGN KEY(`movieId`) REFERENCES `Movie`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_MovieVideo_movieId` "
+                    + "ON `MovieVideo` (`movieId`)");
+        }
+    };
+
+    // Adds the full-text index of the search screen and indexes the stored movies
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `MovieFts` USING FTS4("
+                    + "`title` TEXT, `overview` TEXT, tokenize=unicode61, prefix=`2,3`, "
+                    + "content=`Movie`)");
+            createFtsTriggers(database);
+            database.execSQL("INSERT INTO `MovieFts`(`MovieFts`) VALUES('rebuild')");
+        }
+    };
+
+    // Adds favorites and the cache bookkeeping used for eviction
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `Favorite` ("
+                    + "`movieId` INTEGER NOT NULL, `addedAt` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`movieId`), "
+                    + "FOREIGN KEY(`movieId`) REFERENCES `Movie`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `MovieCacheEntry` ("
+                    + "`movieId` INTEGER NOT NULL, `fetchedAt` INTEGER NOT NULL, "
+                    + "`accessedAt` INTEGER NOT NULL, `bytes` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`movieId`), "
+                    + "FOREIGN KEY(`movieId`) REFERENCES `Movie`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_MovieCacheEntry_accessedAt` "
+                    + "ON `MovieCacheEntry` (`accessedAt`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_MovieCacheEntry_fetchedAt` "
+                    + "ON `MovieCacheEntry` (`fetchedAt`)");
+            insertCacheEntries(database);
+        }
+    };
 
-    public static MovieDatabase getDatabase(Context context) {
+    // Stores the rating, release date, popularity and vote count as numbers, so they
+    // sort and filter in SQL. SQLite can't change a column type, the movies are copied
+    // into a new table. Foreign keys aren't enforced until Room opens the database,
+    // so dropping Movie keeps its favorites and cache entries.
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `Movie_new` ("
+                    + "`id` INTEGER NOT NULL, `posterPath` TEXT, `backdropPath` TEXT, "
+                    + "`title` TEXT, `voteAverage` REAL NOT NULL, `overview` TEXT, "
+                    + "`releaseDate` INTEGER NOT NULL, `popularity` REAL NOT NULL, "
+                    + "`voteCount` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            // TMDb sends yyyy-MM-dd or "", julianday of 1970-01-01 is 2440587.5
+            database.execSQL("INSERT INTO `Movie_new` (`id`, `posterPath`, `backdropPath`, "
+                    + "`title`, `voteAverage`, `overview`, `releaseDate`, `popularity`, "
+                    + "`voteCount`) SELECT `id`, `posterPath`, `backdropPath`, `title`, "
+                    + "IFNULL(CAST(`voteAverage` AS REAL), 0), `overview`, "
+                    + "CASE WHEN `releaseDate` GLOB '[0-9][0-9][0-9][0-9]-[0-9][0-9]-[0-9][0-9]' "
+                    + "AND julianday(`releaseDate`) IS NOT NULL "
+                    + "THEN CAST(julianday(`releaseDate`) - 2440587.5 AS INTEGER) "
+                    + "ELSE " + EpochDays.NONE + " END, 0, 0 FROM `Movie`");
+            database.execSQL("DROP TABLE `Movie`");
+            database.execSQL("ALTER TABLE `Movie_new` RENAME TO `Movie`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Movie_voteAverage` "
+                    + "ON `Movie` (`voteAverage`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Movie_releaseDate` "
+                    + "ON `Movie` (`releaseDate`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_Movie_popularity` "
+                    + "ON `Movie` (`popularity`)");
+            // The rowids are the movie ids, the full-text index still matches
+            createFtsTriggers(database);
+        }
+    };
+
+    // Drops popularity and vote count, which nothing read and which went stale because
+    // the page diff doesn't compare them, and the rating and date indexes no query
+    // reads. The movies are copied like in MIGRATION_6_7, which drops the indexes.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `Movie_new` ("
+                    + "`id` INTEGER NOT NULL, `posterPath` TEXT, `backdropPath` TEXT, "
+                    + "`title` TEXT, `voteAverage` REAL NOT NULL, `overview` TEXT, "
+                    + "`releaseDate` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+            database.execSQL("INSERT INTO `Movie_new` (`id`, `posterPath`, `backdropPath`, "
+                    + "`title`, `voteAverage`, `overview`, `releaseDate`) SELECT `id`, "
+                    + "`posterPath`, `backdropPath`, `title`, `voteAverage`, `overview`, "
+                    + "`releaseDate` FROM `Movie`");
+            database.execSQL("DROP TABLE `Movie`");
+            database.execSQL("ALTER TABLE `Movie_new` RENAME TO `Movie`");
+            createFtsTriggers(database);
+        }
+    };
+
+    // Same triggers Room creates for an external content table, dropped with Movie
+    static void createFtsTriggers(SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + "room_fts_content_sync_MovieFts_BEFORE_UPDATE BEFORE UPDATE ON `Movie` "
+                + "BEGIN DELETE FROM `MovieFts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + "room_fts_content_sync_MovieFts_BEFORE_DELETE BEFORE DELETE ON `Movie` "
+                + "BEGIN DELETE FROM `MovieFts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + "room_fts_content_sync_MovieFts_AFTER_UPDATE AFTER UPDATE ON `Movie` "
+                + "BEGIN INSERT INTO `MovieFts`(`docid`, `title`, `overview`) "
+                + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`overview`); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + "room_fts_content_sync_MovieFts_AFTER_INSERT AFTER INSERT ON `Movie` "
+                + "BEGIN INSERT INTO `MovieFts`(`docid`, `title`, `overview`) "
+                + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`overview`); END");
+    }
+
+    /**
+     * Creates the cache entries of stored movies that have none. They get the download
+     * time of their newest page, or 0 so they are evicted first.
+     */
+    static void insertCacheEntries(SupportSQLiteDatabase database) {
+        // Same estimate as MovieCacheEntry.estimateBytes, 64 bytes overhead per row and
+        // 16 for the number columns of a movie
+        database.execSQL("INSERT INTO `MovieCacheEntry` "
+                + "(`movieId`, `fetchedAt`, `accessedAt`, `bytes`) "
+                + "SELECT `id`, IFNULL((SELECT MAX(`FeedPage`.`fetchedAt`) FROM `MovieRank` "
+                + "INNER JOIN `FeedPage` ON `FeedPage`.`sortBy` = `MovieRank`.`sortBy` "
+                + "AND `FeedPage`.`page` = `MovieRank`.`page` "
+                + "WHERE `MovieRank`.`movieId` = `Movie`.`id`), 0), 0, "
+                + "64 + IFNULL(LENGTH(`posterPath`), 0) + IFNULL(LENGTH(`backdropPath`), 0) "
+                + "+ IFNULL(LENGTH(`title`), 0) + IFNULL(LENGTH(`overview`), 0) + 16 "
+                + "+ IFNULL((SELECT SUM(64 + IFNULL(LENGTH(`author`), 0) "
+                + "+ IFNULL(LENGTH(`content`), 0)) FROM `MovieReview` "
+                + "WHERE `MovieReview`.`movieId` = `Movie`.`id`), 0) "
+                + "+ IFNULL((SELECT SUM(64 + IFNULL(LENGTH(`key`), 0) "
+                + "+ IFNULL(LENGTH(`name`), 0) + IFNULL(LENGTH(`site`), 0) "
+                + "+ IFNULL(LENGTH(`type`), 0)) FROM `MovieVideo` "
+                + "WHERE `MovieVideo`.`movieId` = `Movie`.`id`), 0) "
+                + "FROM `Movie`");
+        database.execSQL("UPDATE `MovieCacheEntry` SET `accessedAt` = `fetchedAt`");
+    }
+
+    /**
+     * The queries run on their own threads, LiveData and paged lists keep reading
+     * while the transaction thread commits.
+     */
+    public static synchronized MovieDatabase getDatabase(Context context) {
         if(INSTANCE == null) {
+            MeteredExecutor queryExecutor = new MeteredExecutor("movie-db-query", QUERY_THREADS);
+            MeteredExecutor writeExecutor = new MeteredExecutor("movie-db-write", 1);
             INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                     MovieDatabase.class,
                     "movie-db")
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4,
+                            MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+                    .addCallback(new SeedDatabaseCallback(context))
+                    .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                    .setQueryExecutor(queryExecutor)
+                    .setTransactionExecutor(writeExecutor)
                     .build();
+            INSTANCE.queryExecutor = queryExecutor;
+            INSTANCE.writeExecutor = writeExecutor;
         }
         return INSTANCE;
     }
+
+    /**
+     * Opens movie-db on the transaction thread, so migrations and the seed import are
+     * done before the first screen queries it instead of on its first query.
+     */
+    public static void openInBackground(Context context) {
+        MovieDatabase database = getDatabase(context);
+        database.getTransactionExecutor().execute(() ->
+                database.getOpenHelper().getWritableDatabase());
+    }
+
+    /**
+     * @return wait times of the queries, including paged list loads
+     */
+    public MeteredExecutor getQueryMetrics() {
+        return queryExecutor;
+    }
+
+    /**
+     * @return wait times of the transactions, including write batches
+     */
+    public MeteredExecutor getWriteMetrics() {
+        return writeExecutor;
+    }
 }
@@ -0,0 +1,33 @@
+package com.example.android.popularmovies.data;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Full-text index over the title and overview of every stored movie. It reads its
+ * text from Movie, and Room's triggers keep it in sync on every write to Movie. Its
+ * rowid is the movie id.
+ * unicode61 folds case and accents, so "amelie" finds Amélie. The prefix indexes keep
+ * two and three letter prefix queries from scanning the whole vocabulary.
+ */
+@Fts4(contentEntity = Movie.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61,
+        prefix = {2, 3})
+@Entity(tableName = "MovieFts")
+public class MovieFts {
+    private String title;
+    private String overview;
+
+    public MovieFts(String title, String overview) {
+        this.title = title;
+        this.overview = overview;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+}
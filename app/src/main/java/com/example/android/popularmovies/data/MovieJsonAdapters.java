@@ -0,0 +1,365 @@
+package com.example.android.popularmovies.data;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming Gson adapters for the TMDb models. They read fields by name straight
+ * from the JsonReader, so no reflection is used, fields the app doesn't show are
+ * skipped without building a tree, and short values that repeat on every trailer
+ * ("Trailer", "Teaser") share one String instance. Videos that aren't on YouTube
+ * are dropped while parsing.
+ * Register with GsonBuilder.registerTypeAdapterFactory.
+ */
+public final class MovieJsonAdapters implements TypeAdapterFactory {
+    // Upper bound for the pool, values past it are simply not interned
+    private static final int MAX_POOLED_STRINGS = 256;
+
+    private final ConcurrentHashMap<String, String> stringPool = new ConcurrentHashMap<>();
+    private final TypeAdapter<Movie> movieAdapter = new MovieAdapter();
+    private final TypeAdapter<Movies> moviesAdapter = new MoviesAdapter();
+    private final TypeAdapter<Movies.Reviews> reviewsAdapter = new ReviewsAdapter();
+    private final TypeAdapter<Movies.Videos> videosAdapter = new VideosAdapter();
+    private final TypeAdapter<Review> reviewAdapter = new ReviewAdapter();
+    private final TypeAdapter<Trailer> trailerAdapter = new TrailerAdapter();
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Movie.class) {
+            return (TypeAdapter<T>) movieAdapter;
+        } else if (rawType == Movies.class) {
+            return (TypeAdapter<T>) moviesAdapter;
+        } else if (rawType == Movies.Reviews.class) {
+            return (TypeAdapter<T>) reviewsAdapter;
+        } else if (rawType == Movies.Videos.class) {
+            return (TypeAdapter<T>) videosAdapter;
+        } else if (rawType == Review.class) {
+            return (TypeAdapter<T>) reviewAdapter;
+        } else if (rawType == Trailer.class) {
+            return (TypeAdapter<T>) trailerAdapter;
+        }
+        return null;
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = stringPool.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (stringPool.size() >= MAX_POOLED_STRINGS) {
+            return value;
+        }
+        pooled = stringPool.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Reads a string, number or boolean as a String. Returns null for JSON null.
+     */
+    private static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads a number. Returns 0 for JSON null.
+     */
+    private static double nextDoubleOrZero(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+
+    /**
+     * Reads the "results" array of a reviews or videos object. Items read as null are
+     * left out. Returns an empty list for JSON null.
+     */
+    private static <T> List<T> readResults(JsonReader in, TypeAdapter<T> itemAdapter)
+            throws IOException {
+        List<T> results = new ArrayList<>();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return results;
+        }
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("results") && in.peek() == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    T item = itemAdapter.read(in);
+                    if (item != null) {
+                        results.add(item);
+                    }
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return results;
+    }
+
+    private static <T> void writeResults(JsonWriter out, List<T> results,
+                                         TypeAdapter<T> itemAdapter) throws IOException {
+        out.beginObject();
+        out.name("results").beginArray();
+        if (results != null) {
+            for (T item : results) {
+                itemAdapter.write(out, item);
+            }
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private final class MovieAdapter extends TypeAdapter<Movie> {
+        @Override
+        public Movie read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Movie movie = new Movie();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        movie.setId(in.nextInt());
+                        break;
+                    case "poster_path":
+                        movie.setPosterPath(nextStringOrNull(in));
+                        break;
+                    case "backdrop_path":
+                        movie.setBackdropPath(nextStringOrNull(in));
+                        break;
+                    case "title":
+                        movie.setTitle(nextStringOrNull(in));
+                        break;
+                    case "vote_average":
+                        movie.setVoteAverage((float) nextDoubleOrZero(in));
+                        break;
+                    case "overview":
+                        movie.setOverview(nextStringOrNull(in));
+                        break;
+                    case "release_date":
+                        movie.setReleaseDate(EpochDays.parse(nextStringOrNull(in)));
+                        break;
+                    case "reviews":
+                        movie.setReviews(reviewsAdapter.read(in));
+                        break;
+                    case "videos":
+                        movie.setVideos(videosAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return movie;
+        }
+
+        @Override
+        public void write(JsonWriter out, Movie movie) throws IOException {
+            if (movie == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(movie.getId());
+            out.name("poster_path").value(movie.getPosterPath());
+            out.name("backdrop_path").value(movie.getBackdropPath());
+            out.name("title").value(movie.getTitle());
+            out.name("vote_average").value(movie.getVoteAverage());
+            out.name("overview").value(movie.getOverview());
+            out.name("release_date").value(EpochDays.toIsoString(movie.getReleaseDate()));
+            if (movie.getReviews() != null) {
+                out.name("reviews");
+                reviewsAdapter.write(out, movie.getReviews());
+            }
+            if (movie.getVideos() != null) {
+                out.name("videos");
+                videosAdapter.write(out, movie.getVideos());
+            }
+            out.endObject();
+        }
+    }
+
+    private final class MoviesAdapter extends TypeAdapter<Movies> {
+        @Override
+        public Movies read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Movies movies = new Movies();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("results") && in.peek() == JsonToken.BEGIN_ARRAY) {
+                    List<Movie> results = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        results.add(movieAdapter.read(in));
+                    }
+                    in.endArray();
+                    movies.setMovies(results);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return movies;
+        }
+
+        @Override
+        public void write(JsonWriter out, Movies movies) throws IOException {
+            if (movies == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("results").beginArray();
+            for (Movie movie : movies.getMovies()) {
+                movieAdapter.write(out, movie);
+            }
+            out.endArray();
+            out.endObject();
+        }
+    }
+
+    private final class ReviewsAdapter extends TypeAdapter<Movies.Reviews> {
+        @Override
+        public Movies.Reviews read(JsonReader in) throws IOException {
+            return new Movies.Reviews(readResults(in, reviewAdapter));
+        }
+
+        @Override
+        public void write(JsonWriter out, Movies.Reviews reviews) throws IOException {
+            writeResults(out, reviews == null ? null : reviews.getResults(), reviewAdapter);
+        }
+    }
+
+    private final class VideosAdapter extends TypeAdapter<Movies.Videos> {
+        @Override
+        public Movies.Videos read(JsonReader in) throws IOException {
+            return new Movies.Videos(readResults(in, trailerAdapter));
+        }
+
+        @Override
+        public void write(JsonWriter out, Movies.Videos videos) throws IOException {
+            writeResults(out, videos == null ? null : videos.getResults(), trailerAdapter);
+        }
+    }
+
+    private static final class ReviewAdapter extends TypeAdapter<Review> {
+        @Override
+        public Review read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String author = null;
+            String content = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "author":
+                        author = nextStringOrNull(in);
+                        break;
+                    case "content":
+                        content = nextStringOrNull(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Review(author, content);
+        }
+
+        @Override
+        public void write(JsonWriter out, Review review) throws IOException {
+            if (review == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("author").value(review.getAuthor());
+            out.name("content").value(review.getContent());
+            out.endObject();
+        }
+    }
+
+    /**
+     * Reads a video as null unless it is on YouTube, the only site the detail screen
+     * can play.
+     */
+    private final class TrailerAdapter extends TypeAdapter<Trailer> {
+        @Override
+        public Trailer read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String key = null;
+            String name = null;
+            String site = null;
+            String type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "key":
+                        key = nextStringOrNull(in);
+                        break;
+                    case "name":
+                        name = nextStringOrNull(in);
+                        break;
+                    case "site":
+                        site = nextStringOrNull(in);
+                        break;
+                    case "type":
+                        type = intern(nextStringOrNull(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return Trailer.SITE_YOUTUBE.equals(site) ? new Trailer(key, name, type) : null;
+        }
+
+        @Override
+        public void write(JsonWriter out, Trailer trailer) throws IOException {
+            if (trailer == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("key").value(trailer.getKey());
+            out.name("name").value(trailer.getName());
+            out.name("site").value(Trailer.SITE_YOUTUBE);
+            out.name("type").value(trailer.getType());
+            out.endObject();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Position of a movie inside one sorted TMDb feed. Movie rows are stored once in the
+ * Movie table, the ranking only keeps the id so a page can be joined back in order.
+ */
+@Entity(primaryKeys = {"sortBy", "position"},
+        indices = {@Index("movieId")})
+public class MovieRank {
+    @NonNull
+    private String sortBy;
+    private int position;
+    private int page;
+    private int movieId;
+
+    public MovieRank(@NonNull String sortBy, int position, int page, int movieId) {
+        this.sortBy = sortBy;
+        this.position = position;
+        this.page = page;
+        this.movieId = movieId;
+    }
+
+    @NonNull
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+}
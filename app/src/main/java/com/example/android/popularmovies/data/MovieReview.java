@@ -0,0 +1,46 @@
+package com.example.android.popularmovies.data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * A review of a movie, stored so the detail screen can show it offline. Reviews are
+ * replaced as a whole when the movie's details are downloaded again.
+ */
+@Entity(primaryKeys = {"movieId", "position"},
+        foreignKeys = @ForeignKey(entity = Movie.class,
+                parentColumns = "id",
+                childColumns = "movieId",
+                onDelete = ForeignKey.CASCADE),
+        indices = {@Index("movieId")})
+public class MovieReview {
+    private int movieId;
+    // Order of the review in TMDb's response
+    private int position;
+    private String author;
+    private String content;
+
+    public MovieReview(int movieId, int position, String author, String content) {
+        this.movieId = movieId;
+        this.position = position;
+        this.author = author;
+        this.content = content;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.Nullable;
+import androidx.paging.DataSource;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.Locale;
+
+/**
+ * Offline search over the stored movies through the MovieFts index. Every word of the
+ * search text is matched as a prefix, so results show up while the user types.
+ * Movies whose title matches come first, then shorter titles, which are the closer
+ * matches for a prefix.
+ */
+@Dao
+public abstract class MovieSearchDao {
+    @Query("SELECT Movie.* FROM Movie INNER JOIN MovieFts ON Movie.id = MovieFts.rowid "
+            + "WHERE MovieFts MATCH :match "
+            + "ORDER BY Movie.id IN (SELECT rowid FROM MovieFts WHERE title MATCH :match) DESC, "
+            + "length(Movie.title), Movie.title")
+    abstract DataSource.Factory<Integer, Movie> queryMatches(String match);
+
+    /**
+     * Pages through the movies matching a search text. The pages are read on the
+     * Paging fetch executor and reloaded when Movie changes.
+     * @param text search text as typed, must contain a word
+     * @see #toMatchQuery(String)
+     */
+    public DataSource.Factory<Integer, Movie> search(String text) {
+        return queryMatches(toMatchQuery(text));
+    }
+
+    /**
+     * Turns typed text into an FTS query that matches every word as a prefix, like
+     * "star wa" into "star* wa*". Quotes, operators and other punctuation are dropped
+     * so they can't break the query.
+     * @return the query, or null if the text contains no letter or digit
+     */
+    @Nullable
+    public static String toMatchQuery(@Nullable String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        int wordStart = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && wordStart < 0) {
+                wordStart = i;
+            } else if (!inWord && wordStart >= 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                // Lower case, so a typed OR or NOT isn't read as an operator
+                match.append(text.substring(wordStart, i).toLowerCase(Locale.ROOT))
+                        .append('*');
+                wordStart = -1;
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+}
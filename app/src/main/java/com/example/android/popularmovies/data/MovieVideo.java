@@ -0,0 +1,59 @@
+package com.example.android.popularmovies.data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * A trailer or other video of a movie, stored so the detail screen can list it
+ * offline. Videos are replaced as a whole when the movie's details are downloaded again.
+ */
+@Entity(primaryKeys = {"movieId", "position"},
+        foreignKeys = @ForeignKey(entity = Movie.class,
+                parentColumns = "id",
+                childColumns = "movieId",
+                onDelete = ForeignKey.CASCADE),
+        indices = {@Index("movieId")})
+public class MovieVideo {
+    private int movieId;
+    // Order of the video in TMDb's response
+    private int position;
+    private String key;
+    private String name;
+    private String site;
+    private String type;
+
+    public MovieVideo(int movieId, int position, String key, String name, String site,
+                      String type) {
+        this.movieId = movieId;
+        this.position = position;
+        this.key = key;
+        this.name = name;
+        this.site = site;
+        this.type = type;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
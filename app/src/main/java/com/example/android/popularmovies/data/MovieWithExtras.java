@@ -0,0 +1,74 @@
+package com.example.android.popularmovies.data;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A movie row with its stored reviews and videos, loaded by MovieDao in one
+ * transaction.
+ */
+public class MovieWithExtras {
+    @Embedded
+    private Movie movie;
+
+    @Relation(parentColumn = "id", entityColumn = "movieId")
+    private List<MovieReview> reviews;
+
+    @Relation(parentColumn = "id", entityColumn = "movieId")
+    private List<MovieVideo> videos;
+
+    public Movie getMovie() {
+        return movie;
+    }
+
+    public void setMovie(Movie movie) {
+        this.movie = movie;
+    }
+
+    public List<MovieReview> getReviews() {
+        return reviews;
+    }
+
+    public void setReviews(List<MovieReview> reviews) {
+        this.reviews = reviews;
+    }
+
+    public List<MovieVideo> getVideos() {
+        return videos;
+    }
+
+    public void setVideos(List<MovieVideo> videos) {
+        this.videos = videos;
+    }
+
+    /**
+     * @return the movie with its reviews and videos attached in TMDb's order, the
+     * same shape as a movie parsed from the details endpoint
+     */
+    public Movie toMovie() {
+        List<MovieReview> sortedReviews = new ArrayList<>(reviews);
+        Collections.sort(sortedReviews,
+                (a, b) -> Integer.compare(a.getPosition(), b.getPosition()));
+        List<Review> reviewResults = new ArrayList<>(sortedReviews.size());
+        for (MovieReview review : sortedReviews) {
+            reviewResults.add(new Review(review.getAuthor(), review.getContent()));
+        }
+        List<MovieVideo> sortedVideos = new ArrayList<>(videos);
+        Collections.sort(sortedVideos,
+                (a, b) -> Integer.compare(a.getPosition(), b.getPosition()));
+        List<Trailer> videoResults = new ArrayList<>(sortedVideos.size());
+        for (MovieVideo video : sortedVideos) {
+            // Stored before other sites were dropped at parse time
+            if (Trailer.SITE_YOUTUBE.equals(video.getSite())) {
+                videoResults.add(new Trailer(video.getKey(), video.getName(), video.getType()));
+            }
+        }
+        movie.setReviews(new Movies.Reviews(reviewResults));
+        movie.setVideos(new Movies.Videos(videoResults));
+        return movie;
+    }
+}
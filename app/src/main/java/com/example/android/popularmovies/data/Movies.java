@@ -19,83 +19,37 @@ public class Movies {
         return movies;
     }
 
-    public class Review {
+    void setMovies(List<Movie> movies) {
+        this.movies = movies;
+    }
 
-        private List<Result> results;
+    /**
+     * The "reviews" object of the details endpoint.
+     */
+    public static class Reviews {
+        private final List<Review> results;
 
-        public Review(List<Result> results) {
+        public Reviews(List<Review> results) {
             this.results = results;
         }
 
-        public List<Result> getResults() {
+        public List<Review> getResults() {
             return results;
         }
-
     }
 
-    public class Video {
-        private List<Result> results;
+    /**
+     * The "videos" object of the details endpoint, only its YouTube videos.
+     */
+    public static class Videos {
+        private final List<Trailer> results;
 
-        public Video(List<Result> results) {
+        public Videos(List<Trailer> results) {
             this.results = results;
         }
 
-        public List<Result> getResults() {
+        public List<Trailer> getResults() {
             return results;
         }
     }
-
-    public class Result {
-        // For Reviews Only
-        private String author;
-        private String content;
-
-        // For Videos Only
-        private String key;
-        private String name;
-        private String site;
-        private String type;
-
-        // Constructor for Video use
-        public Result(String key, String name, String site, String type) {
-            this.key = key;
-            this.name = name;
-            this.site = site;
-            this.type = type;
-        }
-
-        // Constructor for Review use
-        public Result(String author, String content) {
-            this.author = author;
-            this.content = content;
-        }
-
-        public String getKey() {
-            return key;
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getSite() {
-            return site;
-        }
-
-        public String getType() {
-            return type;
-        }
-
-        public String getAuthor() {
-            return author;
-        }
-
-        public String getContent() {
-            return content;
-        }
-    }
-
-
 }
-
-
@@ -0,0 +1,28 @@
+package com.example.android.popularmovies.data;
+
+import androidx.room.Embedded;
+
+/**
+ * A movie with its position in a sorted feed, the key of the next keyset slice.
+ */
+public class RankedMovie {
+    @Embedded
+    private Movie movie;
+    private int position;
+
+    public Movie getMovie() {
+        return movie;
+    }
+
+    public void setMovie(Movie movie) {
+        this.movie = movie;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.android.popularmovies.data;
+
+/**
+ * A user review of a movie, as listed on the detail screen.
+ */
+public final class Review {
+    private final String author;
+    private final String content;
+
+    public Review(String author, String content) {
+        this.author = author;
+        this.content = content;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.android.popularmovies.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Fills a newly created movie-db with the first pages of each sort order, so the first
+ * launch paints a full grid from disk, also offline. The pages come from the asset
+ * seed/movie-seed.db, which the generateSeedDatabase Gradle task builds from TMDb
+ * responses recorded into app/seed. The recordings aren't part of the repository, a
+ * build without them has no asset and the list waits for TMDb. Seed pages count as
+ * downloaded long ago, so they are shown at once and replaced by fresh pages when the
+ * app is online.
+ * <p>
+ * The seed only holds the movie columns and is copied into the tables Room just
+ * created, so it doesn't have to match the schema version or Room's identity hash.
+ */
+class SeedDatabaseCallback extends RoomDatabase.Callback {
+    private static final String TAG = "SeedDatabaseCallback";
+    private static final String SEED_ASSET = "seed/movie-seed.db";
+    // Layout of the seed tables, seedVersion in app/seed.gradle must match
+    private static final int SEED_VERSION = 3;
+
+    private final Context context;
+    private boolean seedPending;
+
+    SeedDatabaseCallback(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+        // Room creates the tables in a transaction, which can't attach a database
+        seedPending = true;
+    }
+
+    @Override
+    public void onOpen(@NonNull SupportSQLiteDatabase db) {
+        if (!seedPending) {
+            return;
+        }
+        seedPending = false;
+        if (!hasSeedAsset()) {
+            Log.d(TAG, "Built without recorded pages, no seed to import");
+            return;
+        }
+        // The asset is compressed in the APK, SQLite needs a file to attach
+        File seed = new File(context.getCacheDir(), "movie-seed.db");
+        try {
+            copyAsset(seed);
+            importSeed(db, seed);
+        } catch (IOException | SQLException e) {
+            Log.w(TAG, "Seed import failed, the list waits for TMDb", e);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            seed.delete();
+        }
+    }
+
+    private boolean hasSeedAsset() {
+        String dir = SEED_ASSET.substring(0, SEED_ASSET.lastIndexOf('/'));
+        String name = SEED_ASSET.substring(dir.length() + 1);
+        try {
+            String[] assets = context.getAssets().list(dir);
+            if (assets != null) {
+                for (String asset : assets) {
+                    if (asset.equals(name)) {
+                        return true;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Can't list the assets", e);
+        }
+        return false;
+    }
+
+    private void copyAsset(File target) throws IOException {
+        try (InputStream in = context.getAssets().open(SEED_ASSET);
+             OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static void importSeed(SupportSQLiteDatabase db, File seed) {
+        db.execSQL("ATTACH DATABASE ? AS seed", new Object[]{seed.getPath()});
+        try {
+            try (Cursor cursor = db.query("PRAGMA seed.user_version")) {
+                if (!cursor.moveToFirst() || cursor.getInt(0) != SEED_VERSION) {
+                    Log.d(TAG, "Seed has another layout, skipped");
+                    return;
+                }
+            }
+            db.beginTransaction();
+            try {
+                db.execSQL("INSERT OR IGNORE INTO `Movie` (`id`, `posterPath`, "
+                        + "`backdropPath`, `title`, `voteAverage`, `overview`, `releaseDate`) "
+                        + "SELECT `id`, `posterPath`, `backdropPath`, `title`, `voteAverage`, "
+                        + "`overview`, `releaseDate` FROM seed.`Movie`");
+                db.execSQL("INSERT OR IGNORE INTO `MovieRank` (`sortBy`, `position`, `page`, "
+                        + "`movieId`) SELECT `sortBy`, `position`, `page`, `movieId` "
+                        + "FROM seed.`MovieRank`");
+                db.execSQL("INSERT OR IGNORE INTO `FeedPage` (`sortBy`, `page`, `fetchedAt`) "
+                        + "SELECT `sortBy`, `page`, `fetchedAt` FROM seed.`FeedPage`");
+                MovieDatabase.insertCacheEntries(db);
+                // Installed now, the eviction counts the seed's age from here
+                db.execSQL("UPDATE `MovieCacheEntry` SET `fetchedAt` = ?, `accessedAt` = ?",
+                        new Object[]{System.currentTimeMillis(), System.currentTimeMillis()});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.execSQL("DETACH DATABASE seed");
+        }
+    }
+}
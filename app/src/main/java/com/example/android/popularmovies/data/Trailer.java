@@ -0,0 +1,36 @@
+package com.example.android.popularmovies.data;
+
+/**
+ * A YouTube video of a movie, trailers and teasers alike. Videos on other sites can't
+ * be played by the detail screen and are dropped when the details are parsed.
+ */
+public final class Trailer {
+    // TMDb's name of the site, stored in MovieVideo.site
+    public static final String SITE_YOUTUBE = "YouTube";
+
+    private final String key;
+    private final String name;
+    private final String type;
+
+    /**
+     * @param key YouTube video id
+     * @param type "Trailer", "Teaser", "Clip"...
+     */
+    public Trailer(String key, String name, String type) {
+        this.key = key;
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for the database. Writes that arrive within a short window of
+ * each other are committed together in one transaction on a single writer thread, so
+ * a burst of pages and details costs one fsync and wakes up each observer once.
+ * <p>
+ * If any write of a batch throws, the batch is rolled back and its writes are
+ * committed again one transaction each, so a bad write only loses itself.
+ */
+public class WriteCoalescer {
+
+    public interface TransactionRunner {
+        /**
+         * Runs body in a transaction, committing it unless body throws.
+         */
+        void runInTransaction(Runnable body);
+    }
+
+    public interface OnWritten {
+        /**
+         * Called on the writer thread once the write is committed or has failed.
+         * @param error why the write was rolled back, null if it was committed
+         */
+        void onWritten(@Nullable RuntimeException error);
+    }
+
+    private static class PendingWrite {
+        final Runnable write;
+        final OnWritten onWritten;
+
+        PendingWrite(Runnable write, OnWritten onWritten) {
+            this.write = write;
+            this.onWritten = onWritten;
+        }
+    }
+
+    private final TransactionRunner transactions;
+    private final ScheduledExecutorService timer;
+    private final Executor writer;
+    private final int maxBatchSize;
+    private final long window;
+    private final TimeUnit unit;
+
+    private final Object lock = new Object();
+    private List<PendingWrite> pending = new ArrayList<>();
+    // Flush waiting for the window to end, and whether a full batch is about to flush
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean flushQueued;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final AtomicLong slowestCommitNanos = new AtomicLong();
+
+    /**
+     * Commits the batches on the thread that times the window.
+     * @param transactions runs a batch in one transaction, usually
+     *                     RoomDatabase::runInTransaction
+     * @param writer the only thread writes are run on
+     * @param maxBatchSize writes committed together at most, a full batch doesn't
+     *                     wait for the window to end
+     * @param window how long the first write of a batch waits for others to join it
+     */
+    public WriteCoalescer(TransactionRunner transactions, ScheduledExecutorService writer,
+                          int maxBatchSize, long window, TimeUnit unit) {
+        this(transactions, writer, writer, maxBatchSize, window, unit);
+    }
+
+    /**
+     * @param timer ends the windows, runs no writes
+     * @param writer runs one batch at a time, usually
+     *               RoomDatabase.getTransactionExecutor()
+     */
+    public WriteCoalescer(TransactionRunner transactions, ScheduledExecutorService timer,
+                          Executor writer, int maxBatchSize, long window, TimeUnit unit) {
+        this.transactions = transactions;
+        this.timer = timer;
+        this.writer = writer;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+        this.unit = unit;
+    }
+
+    /**
+     * Queues a write for the next batch.
+     * @param write runs inside the batch's transaction on the writer thread
+     * @param onWritten told about the outcome after the commit, may be null
+     */
+    public void write(@NonNull Runnable write, @Nullable OnWritten onWritten) {
+        synchronized (lock) {
+            pending.add(new PendingWrite(write, onWritten));
+            if (flushQueued) {
+                return;
+            }
+            if (pending.size() >= maxBatchSize) {
+                queueFlush();
+            } else if (scheduledFlush == null) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    private void flush() {
+        List<PendingWrite> batch;
+        synchronized (lock) {
+            flushQueued = false;
+            cancelScheduledFlush();
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (pending.size() <= maxBatchSize) {
+                batch = pending;
+                pending = new ArrayList<>();
+            } else {
+                // Writes that joined after the batch filled up start a batch of their own
+                batch = new ArrayList<>(pending.subList(0, maxBatchSize));
+                pending = new ArrayList<>(pending.subList(maxBatchSize, pending.size()));
+                if (pending.size() >= maxBatchSize) {
+                    queueFlush();
+                } else {
+                    scheduleFlush();
+                }
+            }
+        }
+        RuntimeException error = commit(batch);
+        if (error == null) {
+            for (PendingWrite write : batch) {
+                notifyWritten(write, null);
+            }
+            return;
+        }
+        if (batch.size() == 1) {
+            failedCount.incrementAndGet();
+            notifyWritten(batch.get(0), error);
+            return;
+        }
+        for (PendingWrite write : batch) {
+            error = commit(write);
+            if (error != null) {
+                failedCount.incrementAndGet();
+            }
+            notifyWritten(write, error);
+        }
+    }
+
+    // Called with the lock held
+    private void scheduleFlush() {
+        scheduledFlush = timer.schedule(() -> writer.execute(this::flush), window, unit);
+    }
+
+    // Called with the lock held
+    private void queueFlush() {
+        cancelScheduledFlush();
+        flushQueued = true;
+        writer.execute(this::flush);
+    }
+
+    // Called with the lock held
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    private RuntimeException commit(PendingWrite write) {
+        List<PendingWrite> batch = new ArrayList<>(1);
+        batch.add(write);
+        return commit(batch);
+    }
+
+    /**
+     * @return the exception that rolled the batch back, null if it was committed
+     */
+    private RuntimeException commit(List<PendingWrite> batch) {
+        long start = System.nanoTime();
+        try {
+            transactions.runInTransaction(() -> {
+                for (PendingWrite write : batch) {
+                    write.write.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            return e;
+        }
+        long elapsed = System.nanoTime() - start;
+        batchCount.incrementAndGet();
+        writeCount.addAndGet(batch.size());
+        commitNanos.addAndGet(elapsed);
+        updateMax(largestBatch, batch.size());
+        updateMax(slowestCommitNanos, elapsed);
+        return null;
+    }
+
+    private static void notifyWritten(PendingWrite write, RuntimeException error) {
+        if (write.onWritten != null) {
+            write.onWritten.onWritten(error);
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return transactions committed
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return writes committed
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * @return writes rolled back even when committed on their own
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return most writes committed in one transaction
+     */
+    public long getLargestBatch() {
+        return largestBatch.get();
+    }
+
+    /**
+     * @return average writes per transaction, 0 before the first commit
+     */
+    public double getAverageBatchSize() {
+        long batches = getBatchCount();
+        return batches == 0 ? 0 : (double) getWriteCount() / batches;
+    }
+
+    /**
+     * @return average time from the start of a transaction to its commit
+     */
+    public double getAverageCommitMillis() {
+        long batches = getBatchCount();
+        return batches == 0 ? 0 : commitNanos.get() / 1e6 / batches;
+    }
+
+    /**
+     * @return longest time from the start of a transaction to its commit
+     */
+    public double getSlowestCommitMillis() {
+        return slowestCommitNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH,
+                "%d writes in %d batches (avg %.1f, max %d), commit avg=%.1f ms, "
+                        + "max=%.1f ms, failed=%d",
+                getWriteCount(),
+                getBatchCount(),
+                getAverageBatchSize(),
+                getLargestBatch(),
+                getAverageCommitMillis(),
+                getSlowestCommitMillis(),
+                getFailedCount());
+    }
+}
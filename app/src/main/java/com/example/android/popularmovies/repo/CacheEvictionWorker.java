@@ -0,0 +1,66 @@
+package com.example.android.popularmovies.repo;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.android.popularmovies.data.MovieDao;
+import com.example.android.popularmovies.data.MovieDatabase;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Keeps movie-db bounded. Once a day, while the phone is idle, movies downloaded more
+ * than MAX_AGE_DAYS ago are evicted, then the least recently shown ones until the
+ * cache is under MAX_ROWS and MAX_BYTES. Reviews, trailers and the feed pages that
+ * ranked them go too. Favorites are never evicted.
+ */
+public class CacheEvictionWorker extends Worker {
+    private static final String TAG = "CacheEvictionWorker";
+    private static final String WORK_NAME = "cache-eviction";
+    private static final long REPEAT_DAYS = 1;
+    private static final long MAX_AGE_DAYS = 30;
+    // About 100 feed pages, each movie with its reviews and trailers
+    private static final int MAX_ROWS = 2000;
+    private static final long MAX_BYTES = 8 * 1024 * 1024;
+
+    private final MovieDao movieDao;
+
+    public CacheEvictionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        movieDao = MovieDatabase.getDatabase(context).movieDao();
+    }
+
+    /**
+     * Schedules the eviction unless it is already scheduled. Safe to call on every launch.
+     */
+    public static void schedule() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                CacheEvictionWorker.class, REPEAT_DAYS, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance().enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_AGE_DAYS);
+        // One transaction, the list observes a single change
+        int evicted = movieDao.evictMovies(expiredBefore, MAX_ROWS, MAX_BYTES);
+        Log.d(TAG, "Evicted " + evicted + " movies, " + movieDao.countEvictable()
+                + " left using " + movieDao.sumEvictableBytes() / 1024 + " KiB");
+        return Result.success();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.android.popularmovies.repo;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.android.popularmovies.ApiKeyFile;
+import com.example.android.popularmovies.data.MovieDao;
+import com.example.android.popularmovies.data.MovieDatabase;
+import com.example.android.popularmovies.data.Movies;
+import com.example.android.popularmovies.utilities.MovieDbNetwork;
+import com.example.android.popularmovies.utilities.MovieDbService;
+import com.example.android.popularmovies.utilities.RequestCoalescer;
+import com.example.android.popularmovies.utilities.RequestScheduler.Priority;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Refreshes the first pages of every sort order into Room while the phone charges on
+ * an unmetered network, so the list opens on fresh pages without a network wait.
+ * Pages go through MovieDao.insertPage, which only writes the rows that changed.
+ */
+public class CatalogSyncWorker extends Worker {
+    private static final String TAG = "CatalogSyncWorker";
+    private static final String WORK_NAME = "catalog-sync";
+    private static final int PAGES_PER_SORT = 3;
+    // Half of MovieRepository.PAGE_MAX_AGE, so synced pages are still fresh on launch
+    private static final long REPEAT_HOURS = 3;
+
+    private final MovieDao movieDao;
+    private final MovieDbService movieDbService;
+    private final RequestCoalescer<Movies> pageRequests;
+
+    public CatalogSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        movieDao = MovieDatabase.getDatabase(context).movieDao();
+        MovieDbNetwork network = MovieDbNetwork.getInstance(context);
+        movieDbService = network.getMovieDbService();
+        pageRequests = network.getPageRequests();
+    }
+
+    /**
+     * Schedules the sync unless it is already scheduled. Safe to call on every launch.
+     */
+    public static void schedule() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                CatalogSyncWorker.class, REPEAT_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance().enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        int written = 0;
+        try {
+            for (SortOrder order : SortOrder.values()) {
+                String sortBy = order.getPath();
+                for (int page = 1; page <= PAGES_PER_SORT; page++) {
+                    if (isStopped()) {
+                        return Result.retry();
+                    }
+                    Movies movies = fetchPage(sortBy, page);
+                    written += movieDao.insertPage(sortBy, page, movies.getMovies(),
+                            System.currentTimeMillis());
+                }
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "Sync failed: " + e.getMessage());
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+        Log.d(TAG, "Synced " + SortOrder.values().length * PAGES_PER_SORT + " pages, "
+                + written + " rows changed");
+        return Result.success();
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        pageRequests.cancelAll(this);
+    }
+
+    /**
+     * Downloads a page at the lowest priority, or joins the app's request for it.
+     */
+    private Movies fetchPage(String sortBy, int page)
+            throws IOException, InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Object[] result = new Object[1];
+        pageRequests.enqueue(sortBy + ":" + page, Priority.BACKGROUND_SYNC, this,
+                () -> movieDbService.getSortedMovies(
+                        sortBy,
+                        ApiKeyFile.MOVIE_DB_API_KEY,
+                        String.valueOf(page),
+                        Priority.BACKGROUND_SYNC.name()), new Callback<Movies>() {
+            @Override
+            public void onResponse(@NonNull Call<Movies> call, @NonNull Response<Movies> response) {
+                result[0] = response.body() != null
+                        ? response.body()
+                        : new HttpException(response);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<Movies> call, @NonNull Throwable t) {
+                result[0] = t;
+                done.countDown();
+            }
+        });
+        // A stopped worker's callback is dropped by cancelAll, don't wait for it
+        while (!done.await(1, TimeUnit.SECONDS)) {
+            if (isStopped()) {
+                throw new InterruptedIOException("Sync stopped");
+            }
+        }
+        if (result[0] instanceof Movies) {
+            return (Movies) result[0];
+        }
+        if (result[0] instanceof IOException) {
+            throw (IOException) result[0];
+        }
+        throw new IOException("Sync of " + sortBy + " page " + page + " failed",
+                (Throwable) result[0]);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.popularmovies.repo;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fetches details of posters that stayed on screen for DWELL_MILLIS, so they are in
+ * the database by the time the user taps one. The queue is bounded and free of
+ * duplicates, posters that scroll away before their request starts are dropped, and
+ * only MAX_IN_FLIGHT requests run at a time at the lowest interactive priority.
+ * Must be used from the main thread, which is also where Retrofit calls back.
+ */
+class DetailHydrator {
+    static final long DWELL_MILLIS = 500;
+    static final int MAX_QUEUED = 12;
+    static final int MAX_IN_FLIGHT = 2;
+
+    interface DetailFetcher {
+        /**
+         * Fetches and stores the details of a movie, then runs onDone.
+         */
+        void fetch(int movieId, Runnable onDone);
+    }
+
+    interface FreshDetails {
+        /**
+         * @return true if the movie's details were stored recently enough to skip it
+         */
+        boolean isFresh(int movieId);
+    }
+
+    interface Scheduler {
+        void postDelayed(Runnable task, long delayMillis);
+
+        void cancel(Runnable task);
+    }
+
+    private final DetailFetcher fetcher;
+    private final FreshDetails recentDetails;
+    private final Scheduler scheduler;
+    private final Map<Integer, Runnable> dwellTimers = new HashMap<>();
+    private final LinkedHashSet<Integer> queue = new LinkedHashSet<>();
+    private final Set<Integer> inFlight = new HashSet<>();
+
+    DetailHydrator(RecentDetails recentDetails, DetailFetcher fetcher) {
+        this(recentDetails::isFresh, fetcher, new MainThreadScheduler());
+    }
+
+    DetailHydrator(FreshDetails recentDetails, DetailFetcher fetcher, Scheduler scheduler) {
+        this.recentDetails = recentDetails;
+        this.fetcher = fetcher;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts the dwell timer of a poster that became visible.
+     */
+    void onPosterShown(int movieId) {
+        if (dwellTimers.containsKey(movieId) || queue.contains(movieId)
+                || inFlight.contains(movieId) || recentDetails.isFresh(movieId)) {
+            return;
+        }
+        Runnable dwellTimer = () -> {
+            dwellTimers.remove(movieId);
+            enqueue(movieId);
+        };
+        dwellTimers.put(movieId, dwellTimer);
+        scheduler.postDelayed(dwellTimer, DWELL_MILLIS);
+    }
+
+    /**
+     * Forgets a poster that scrolled away, unless its request already started.
+     */
+    void onPosterHidden(int movieId) {
+        Runnable dwellTimer = dwellTimers.remove(movieId);
+        if (dwellTimer != null) {
+            scheduler.cancel(dwellTimer);
+        }
+        queue.remove(movieId);
+    }
+
+    /**
+     * Drops every pending poster. Running requests are cancelled by their owner.
+     */
+    void clear() {
+        for (Runnable dwellTimer : dwellTimers.values()) {
+            scheduler.cancel(dwellTimer);
+        }
+        dwellTimers.clear();
+        queue.clear();
+    }
+
+    private void enqueue(int movieId) {
+        if (queue.size() >= MAX_QUEUED) {
+            // The oldest poster is the most likely to be off screen soon
+            Iterator<Integer> oldest = queue.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        queue.add(movieId);
+        drain();
+    }
+
+    private void drain() {
+        while (inFlight.size() < MAX_IN_FLIGHT && !queue.isEmpty()) {
+            Iterator<Integer> next = queue.iterator();
+            int movieId = next.next();
+            next.remove();
+            if (recentDetails.isFresh(movieId)) {
+                continue;
+            }
+            inFlight.add(movieId);
+            fetcher.fetch(movieId, () -> {
+                inFlight.remove(movieId);
+                drain();
+            });
+        }
+    }
+
+    private static class MainThreadScheduler implements Scheduler {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            handler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            handler.removeCallbacks(task);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.android.popularmovies.repo;
+
+import java.util.List;
+
+/**
+ * The movie ids of a sorted feed with each movie kept once. TMDb reorders a feed
+ * between page downloads, so a movie can rank on two cached pages. The list shows it
+ * at its first rank only, an index of the list maps to the rank position it shows.
+ * Ids are kept in int arrays with open addressing instead of boxed in a HashMap, so
+ * the index of a long feed is a few arrays rather than an object per movie.
+ */
+class MovieIdIndex {
+    // TMDb ids are positive, 0 marks an empty slot
+    private static final int EMPTY = 0;
+    static final int NO_POSITION = -1;
+
+    // Rank position of each list index
+    private final int[] positions;
+    private final int size;
+    private final int[] slotIds;
+    private final int[] slotPositions;
+    private final int mask;
+
+    /**
+     * @param rankedIds movie ids by rank position, starting at position 0
+     */
+    MovieIdIndex(List<Integer> rankedIds) {
+        positions = new int[rankedIds.size()];
+        int capacity = Integer.highestOneBit(Math.max(2, rankedIds.size()) * 2 - 1) << 1;
+        slotIds = new int[capacity];
+        slotPositions = new int[capacity];
+        mask = capacity - 1;
+        int kept = 0;
+        for (int position = 0; position < rankedIds.size(); position++) {
+            if (add(rankedIds.get(position), position)) {
+                positions[kept++] = position;
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * @return false if the id ranks at an earlier position already
+     */
+    private boolean add(int movieId, int position) {
+        int slot = slotOf(movieId);
+        if (slotIds[slot] == movieId) {
+            return false;
+        }
+        slotIds[slot] = movieId;
+        slotPositions[slot] = position;
+        return true;
+    }
+
+    // Slot holding the id, or the empty slot it would go in
+    private int slotOf(int movieId) {
+        int hash = movieId * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (slotIds[slot] != EMPTY && slotIds[slot] != movieId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @return number of movies in the list, without the repeated ones
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the rank position shown at a list index
+     */
+    int positionAt(int index) {
+        return positions[index];
+    }
+
+    /**
+     * @return the rank position the movie is shown at, NO_POSITION if it isn't ranked
+     */
+    int positionOf(int movieId) {
+        int slot = slotOf(movieId);
+        return slotIds[slot] == movieId ? slotPositions[slot] : NO_POSITION;
+    }
+}
@@ -18,128 +18,436 @@
 
 package com.example.android.popularmovies.repo;
 
+import android.app.Application;
 import android.util.Log;
 
 import com.example.android.popularmovies.ApiKeyFile;
+import com.example.android.popularmovies.data.Favorite;
 import com.example.android.popularmovies.data.Movie;
+import com.example.android.popularmovies.data.MovieDao;
+import com.example.android.popularmovies.data.MovieDatabase;
+import com.example.android.popularmovies.data.MovieSearchDao;
 import com.example.android.popularmovies.data.Movies;
+import com.example.android.popularmovies.data.WriteCoalescer;
+import com.example.android.popularmovies.utilities.MovieDbNetwork;
 import com.example.android.popularmovies.utilities.MovieDbService;
+import com.example.android.popularmovies.utilities.NetworkUtils;
+import com.example.android.popularmovies.utilities.RequestCoalescer;
+import com.example.android.popularmovies.utilities.RequestScheduler.Priority;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import okhttp3.OkHttpClient;
+import androidx.lifecycle.Transformations;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
 import retrofit2.Call;
 import retrofit2.Callback;
+import retrofit2.HttpException;
 import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 /**
- * TODO 7/1/2019 NEW FEAT:
- *  Repo class will be the center of data access.
- *  We are also use to store data in cache and
- *  use that data when offline using Repo class. - Emre
+ * Repo class is the center of data access. Movie pages are read from the database
+ * first and refreshed from TMDb in the background when they are missing or stale,
+ * so the list still works offline.
  */
 public class MovieRepository {
-    private static final String MOVIE_DB_BASE_URL = "http://api.themoviedb.org/3/movie/";
-    private static final String SORT_BY_POPULAR = "popular";
     private static final String REVIEWS = "reviews";
     private static final String COMMA_SEPARATOR = ",";
     private static final String TRAILERS = "videos";
+    private static final String STALE_WARNING_HEADER = "Warning";
+    private static final String STALE_WARNING = "110";
+    // Cached pages younger than this are shown without asking the server again
+    private static final long PAGE_MAX_AGE = TimeUnit.HOURS.toMillis(6);
+    // Pages loaded at the same time and pages loaded past the displayed ones
+    private static final int MAX_PAGES_IN_FLIGHT = 2;
+    private static final int MAX_PAGES_AHEAD = 4;
+    // Shown movies are recorded for the cache eviction this many at a time
+    private static final int ACCESS_BATCH_SIZE = 20;
+    // Checks the cached pages off the main thread, writes go through the WriteCoalescer
+    private static final Executor DISK_IO = Executors.newSingleThreadExecutor();
 
-    private String pageNumber = "";
+    private final Application application;
+    private final MovieDatabase database;
+    private final MovieDao movieDao;
+    private final MovieSearchDao searchDao;
+    private final WriteCoalescer writes;
+    // One feed per sort order, the grid shows the selected one
+    private final Map<SortOrder, SortedFeed> feeds = new EnumMap<>(SortOrder.class);
+    private final MutableLiveData<SortOrder> sortOrder;
     private MovieDbService movieDbService;
-    private MutableLiveData<List<Movie>> serverMovies;
-    private MutableLiveData<Movie> serverMovieDetails;
+    // Requests in flight, shared by every repository so duplicates join one Call
+    private final RequestCoalescer<Movies> pageRequests;
+    private final RequestCoalescer<Movie> detailsRequests;
+    private LiveData<PagedList<Movie>> cachedMovies;
+    private LiveData<PagedList<Movie>> favoriteMovies;
+    private MutableLiveData<NetworkState> networkState;
+    private NetworkState lastState;
+    private final RecentDetails recentDetails = RecentDetails.getInstance();
+    private final DetailHydrator detailHydrator;
+    // Movies shown since the last access write, guarded by itself
+    private final Set<Integer> accessedMovies = new LinkedHashSet<>();
 
-    public MovieRepository() {
-        serverMovies = new MutableLiveData<>();
-        serverMovieDetails = new MutableLiveData<>();
-        movieDbService = createMovieDbService();
+    public MovieRepository(Application application) {
+        this.application = application;
+        database = MovieDatabase.getDatabase(application);
+        movieDao = database.movieDao();
+        searchDao = database.movieSearchDao();
+        writes = database.getWriteCoalescer();
+        for (SortOrder order : SortOrder.values()) {
+            feeds.put(order, new SortedFeed(order, database, MAX_PAGES_IN_FLIGHT,
+                    MAX_PAGES_AHEAD, this::refreshPageIfStale));
+        }
+        sortOrder = new MutableLiveData<>();
+        sortOrder.setValue(SortOrder.POPULAR);
+        cachedMovies = Transformations.switchMap(sortOrder,
+                order -> feeds.get(order).getMovies());
+        networkState = new MutableLiveData<>();
+        MovieDbNetwork network = MovieDbNetwork.getInstance(application);
+        movieDbService = network.getMovieDbService();
+        pageRequests = network.getPageRequests();
+        detailsRequests = network.getDetailsRequests();
+        detailHydrator = new DetailHydrator(recentDetails, this::hydrateDetails);
     }
 
-    public LiveData<List<Movie>> getMoviesFromServer() {
-        // Create the Call by calling the @GET method from the Service
-        Call<Movies> call = movieDbService
+    /**
+     * Cancels the requests only this repository was waiting for. Call it when the
+     * owning ViewModel is cleared.
+     */
+    public void clear() {
+        flushAccessedMovies();
+        detailHydrator.clear();
+        pageRequests.cancelAll(this);
+        detailsRequests.cancelAll(this);
+        detailsRequests.cancelAll(detailHydrator);
+    }
+
+    /**
+     * A poster became visible in the grid, its details are prefetched if it stays.
+     */
+    public void onPosterShown(int movieId) {
+        recordAccess(movieId);
+        detailHydrator.onPosterShown(movieId);
+    }
+
+    /**
+     * A poster left the grid before its details were requested.
+     */
+    public void onPosterHidden(int movieId) {
+        detailHydrator.onPosterHidden(movieId);
+    }
+
+    /**
+     * Marks a movie as recently used, so the cache eviction keeps it longer. Accesses
+     * are written in batches, they only need to be roughly up to date.
+     */
+    private void recordAccess(int movieId) {
+        List<Integer> movieIds;
+        synchronized (accessedMovies) {
+            accessedMovies.add(movieId);
+            if (accessedMovies.size() < ACCESS_BATCH_SIZE) {
+                return;
+            }
+            movieIds = new ArrayList<>(accessedMovies);
+            accessedMovies.clear();
+        }
+        writeAccess(movieIds);
+    }
+
+    private void flushAccessedMovies() {
+        List<Integer> movieIds;
+        synchronized (accessedMovies) {
+            if (accessedMovies.isEmpty()) {
+                return;
+            }
+            movieIds = new ArrayList<>(accessedMovies);
+            accessedMovies.clear();
+        }
+        writeAccess(movieIds);
+    }
+
+    private void writeAccess(List<Integer> movieIds) {
+        long accessedAt = System.currentTimeMillis();
+        writes.write(() -> movieDao.updateAccessedAt(movieIds, accessedAt), null);
+    }
+
+    /**
+     * @return whether the movie is a favorite, favorites are never evicted
+     */
+    public LiveData<Boolean> isFavorite(int movieId) {
+        return movieDao.isFavorite(movieId);
+    }
+
+    /**
+     * Marks or unmarks a movie as favorite. The movie must be stored already.
+     */
+    public void setFavorite(int movieId, boolean favorite) {
+        long addedAt = System.currentTimeMillis();
+        writes.write(() -> {
+            if (favorite) {
+                movieDao.insertFavorite(new Favorite(movieId, addedAt));
+            } else {
+                movieDao.deleteFavorite(movieId);
+            }
+        }, null);
+    }
+
+    private void hydrateDetails(int movieId, Runnable onDone) {
+        if (!NetworkUtils.isOnline(application)) {
+            onDone.run();
+            return;
+        }
+        fetchDetails(String.valueOf(movieId), Priority.HYDRATION, detailHydrator, onDone);
+    }
+
+    /**
+     * Pages through the cached movies of the selected sort order straight from the
+     * database and revalidates the first page against TMDb in the background. The
+     * next page is downloaded when the list reaches the end of the stored ones.
+     * Fresh results are written back to the database, which then updates the
+     * returned LiveData.
+     * @return movies of all loaded pages, in server order
+     */
+    public LiveData<PagedList<Movie>> getMoviesFromServer() {
+        selectedFeed().getPages().requestUpTo(1);
+        return cachedMovies;
+    }
+
+    /**
+     * Searches the titles and overviews of every stored movie, without the network.
+     * The results are read off the main thread and updated when movies are stored.
+     * @param text search text as typed, must contain a letter or digit
+     * @return matching movies, title matches first
+     */
+    public LiveData<PagedList<Movie>> searchMovies(String text) {
+        return new LivePagedListBuilder<>(searchDao.search(text), MovieDao.PAGE_SIZE)
+                .setFetchExecutor(database.getQueryExecutor())
+                .build();
+    }
+
+    /**
+     * Pages through the user's favorites straight from the database, without the
+     * network. The list updates when a favorite is added or removed.
+     * @return favorites, the most recently added first
+     */
+    public LiveData<PagedList<Movie>> getFavoriteMovies() {
+        if (favoriteMovies == null) {
+            favoriteMovies = new LivePagedListBuilder<>(movieDao.getFavoriteMovies(),
+                    MovieDao.PAGE_SIZE)
+                    .setFetchExecutor(database.getQueryExecutor())
+                    .build();
+        }
+        return favoriteMovies;
+    }
+
+    /**
+     * Shows another sort order. Its pages loaded earlier are shown again from the
+     * database, the pages of the previous order stay loaded for when it comes back.
+     * Must be called on the main thread.
+     */
+    public void setSortOrder(SortOrder order) {
+        if (order == sortOrder.getValue()) {
+            return;
+        }
+        sortOrder.setValue(order);
+        selectedFeed().getPages().requestUpTo(1);
+    }
+
+    public LiveData<SortOrder> getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Loads the pages needed to show itemCount movies of the selected sort order.
+     * Pages that are already loaded or on their way are skipped, so this is cheap to
+     * call on every scroll.
+     * @param itemCount number of movies the list wants to have
+     */
+    public void prefetchMovies(int itemCount) {
+        selectedFeed().getPages().requestUpTo(
+                (itemCount + MovieDao.PAGE_SIZE - 1) / MovieDao.PAGE_SIZE);
+    }
+
+    private SortedFeed selectedFeed() {
+        return feeds.get(sortOrder.getValue());
+    }
+
+    /**
+     * Shows the cached copy of a page right away and downloads it only if it isn't
+     * cached yet or is older than PAGE_MAX_AGE, so repeat launches don't hit the network.
+     */
+    private void refreshPageIfStale(SortedFeed feed, int page) {
+        DISK_IO.execute(() -> {
+            long fetchedAt = movieDao.getPageFetchedAt(feed.getSortOrder().getPath(), page);
+            if (fetchedAt > 0) {
+                feed.onPageAvailable(page);
+            }
+            if (System.currentTimeMillis() - fetchedAt < PAGE_MAX_AGE) {
+                feed.getPages().onPageDone(page, true);
+                return;
+            }
+            if (!NetworkUtils.isOnline(application)) {
+                setNetworkState(fetchedAt > 0 ? NetworkState.STALE
+                        : NetworkState.failed(new IOException("No network connection")));
+                feed.getPages().onPageDone(page, false);
+                return;
+            }
+            setNetworkState(NetworkState.LOADING);
+            fetchPage(feed, page);
+        });
+    }
+
+    private void fetchPage(SortedFeed feed, int page) {
+        String sortBy = feed.getSortOrder().getPath();
+        PageWindow pages = feed.getPages();
+        // Pages the grid is waiting for go first, pages further ahead are speculative
+        Priority priority = page <= pages.getContiguousPage() + 1
+                ? Priority.VISIBLE_PAGE
+                : Priority.PREFETCH;
+        // Create the Call by calling the @GET method from the Service, unless the
+        // same page is already on its way
+        pageRequests.enqueue(sortBy + ":" + page, priority, this, () -> movieDbService
                 .getSortedMovies(
-                    SORT_BY_POPULAR,
+                    sortBy,
                     ApiKeyFile.MOVIE_DB_API_KEY,
-                    pageNumber);
-        // Use the method enqueue from the Call to act upon onResponse and onFailure
-        call.enqueue(new Callback<Movies>() {
+                    String.valueOf(page),
+                    priority.name()), new Callback<Movies>() {
             @Override
             public void onResponse(@NonNull Call<Movies> call, @NonNull Response<Movies> response) {
                 Movies movies = response.body();
-                if(movies != null) {
-                    serverMovies.setValue(movies.getMovies());
+                if(movies == null) {
+                    setNetworkState(NetworkState.failed(new HttpException(response)));
+                    pages.onPageDone(page, false);
+                    return;
                 }
+                setNetworkState(stateOf(response));
+                long fetchedAt = System.currentTimeMillis();
+                writes.write(() -> movieDao.insertPage(sortBy, page, movies.getMovies(),
+                        fetchedAt), error -> {
+                    if (error == null) {
+                        feed.onPageAvailable(page);
+                    } else {
+                        Log.e("MovieRepository", "Storing page " + page + " failed", error);
+                    }
+                    pages.onPageDone(page, error == null);
+                });
             }
 
             @Override
             public void onFailure(@NonNull Call<Movies> call,@NonNull Throwable t) {
-                /**
-                 * TODO 7/1/2019 NEW FEAT:
-                 *  Instead of creating a log message, we need to use
-                 *  either cache or database to display those results
-                 *  and may be show a Toast about connection error here - Emre
-                 */
+                // The cached copy of the page, if any, is already on screen
                 Log.d("MovieRepository", "onFailure: " + t.getMessage());
+                setNetworkState(NetworkState.failed(t));
+                pages.onPageDone(page, false);
             }
         });
-        return serverMovies;
     }
 
+    /**
+     * @return state of the latest request, only posted when it changes
+     */
+    public LiveData<NetworkState> getNetworkState() {
+        return networkState;
+    }
+
+    private synchronized void setNetworkState(NetworkState state) {
+        if (state.isSameAs(lastState)) {
+            return;
+        }
+        lastState = state;
+        networkState.postValue(state);
+    }
+
+    /**
+     * OkHttp marks a cached copy served past its lifetime with "Warning: 110".
+     */
+    private static NetworkState stateOf(Response<?> response) {
+        String warning = response.headers().get(STALE_WARNING_HEADER);
+        if (warning != null && warning.startsWith(STALE_WARNING)) {
+            return NetworkState.STALE;
+        }
+        return NetworkState.LOADED;
+    }
+
+    /**
+     * Returns a movie with its reviews and trailers from the database, and downloads
+     * them again in the background unless they were stored recently. The LiveData
+     * holds null until the movie is stored.
+     */
     public LiveData<Movie> getMovieDetailsFromServer(String movieId) {
-        // Create the Call by calling the @GET method from the Service
-        Call<Movie> call = movieDbService
+        int id = Integer.parseInt(movieId);
+        recordAccess(id);
+        // Usually hydrated while the poster was on screen
+        if (!recentDetails.isFresh(id)) {
+            fetchDetails(movieId, Priority.DETAIL, this, null);
+        }
+        return Transformations.map(movieDao.getMovieWithExtras(id),
+                extras -> extras == null ? null : extras.toMovie());
+    }
+
+    /**
+     * Downloads a movie with its reviews and trailers into the database, or joins the
+     * request already running for it. Only detail screen requests report their state.
+     * @param onDone run on the main thread once the request finished, may be null
+     */
+    private void fetchDetails(String movieId, Priority priority, Object owner,
+                              Runnable onDone) {
+        boolean reportState = priority == Priority.DETAIL;
+        // Create the Call by calling the @GET method from the Service, or join the
+        // request already running for this movie
+        detailsRequests.enqueue("details:" + movieId, priority, owner, () -> movieDbService
                 .getDetails(
                         movieId,
                         ApiKeyFile.MOVIE_DB_API_KEY,
-                        REVIEWS + COMMA_SEPARATOR + TRAILERS);
-        // Use the method enqueue from the Call to act upon onResponse and onFailure
-        call.enqueue(new Callback<Movie>() {
+                        REVIEWS + COMMA_SEPARATOR + TRAILERS,
+                        priority.name()), new Callback<Movie>() {
             @Override
             public void onResponse(@NonNull Call<Movie> call, @NonNull Response<Movie> response) {
                 Movie movie = response.body();
-                if(movie != null) {
-                    serverMovieDetails.setValue(movie);
+                if (movie != null) {
+                    if (reportState) {
+                        setNetworkState(stateOf(response));
+                    }
+                    // A joined request answers every waiter, store it once. The mark
+                    // is dropped again if the write fails, so the next visit retries
+                    if (!recentDetails.isFresh(movie.getId())) {
+                        recentDetails.markStored(movie.getId());
+                        writes.write(() -> movieDao.insertMovieDetails(movie), error -> {
+                            if (error != null) {
+                                Log.e("MovieRepository", "Storing details failed", error);
+                                recentDetails.forget(movie.getId());
+                            }
+                        });
+                    }
+                } else if (reportState) {
+                    setNetworkState(NetworkState.failed(new HttpException(response)));
+                }
+                if (onDone != null) {
+                    onDone.run();
                 }
             }
+
             @Override
             public void onFailure(@NonNull Call<Movie> call, @NonNull Throwable t) {
-                /**
-                 * TODO 7/1/2019 NEW FEAT:
-                 *  Instead of creating a log message, we need to use
-                 *  either cache or database to display those results
-                 *  and may be show a Toast about connection error here - Emre
-                 */
-                Log.d("DetailsActivity", "onFailure: " + t.getMessage());
+                // The stored copy, if any, is already on screen
+                Log.d("MovieRepository", "onFailure: " + t.getMessage());
+                if (reportState) {
+                    setNetworkState(NetworkState.failed(t));
+                }
+                if (onDone != null) {
+                    onDone.run();
+                }
             }
         });
-        return serverMovieDetails;
-    }
-
-    public void setPageNumber(int pageNumber) {
-        this.pageNumber = String.valueOf(pageNumber);
-    }
-
-    public void loadMoviesFromServer(int pageNumber) {
-        setPageNumber(pageNumber);
-        getMoviesFromServer();
-    }
-
-    private MovieDbService createMovieDbService() {
-        // Build Http Client
-        OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
-        // Build Retrofit Object with Base URL
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(MOVIE_DB_BASE_URL)
-                .addConverterFactory(GsonConverterFactory.create())
-                .client(httpClient.build())
-                .build();
-        // Create the Service Object containing the @GET call
-        return retrofit.create(MovieDbService.class);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package com.example.android.popularmovies.repo;
+
+import com.example.android.popularmovies.utilities.CircuitOpenException;
+
+import java.util.Objects;
+
+/**
+ * Outcome of the latest TMDb request of a repository, observed by the UI instead of
+ * failures only being logged.
+ */
+public class NetworkState {
+    public enum Status {
+        LOADING,
+        LOADED,
+        // Served from the cache because TMDb couldn't be reached
+        STALE,
+        FAILED
+    }
+
+    public static final NetworkState LOADING = new NetworkState(Status.LOADING, null);
+    public static final NetworkState LOADED = new NetworkState(Status.LOADED, null);
+    public static final NetworkState STALE = new NetworkState(Status.STALE, null);
+
+    private final Status status;
+    private final Throwable error;
+
+    private NetworkState(Status status, Throwable error) {
+        this.status = status;
+        this.error = error;
+    }
+
+    static NetworkState failed(Throwable error) {
+        return new NetworkState(Status.FAILED, error);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the failure, null unless the status is FAILED or the device is offline
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return true if requests are paused because TMDb kept failing
+     */
+    public boolean isCircuitOpen() {
+        return error instanceof CircuitOpenException;
+    }
+
+    /**
+     * A second failure only counts as the same state if it failed the same way, so
+     * going from offline to rate limited is still shown.
+     * @return true if other has the same status and an error of the same type and message
+     */
+    boolean isSameAs(NetworkState other) {
+        if (other == null || status != other.status) {
+            return false;
+        }
+        if (error == null || other.error == null) {
+            return error == other.error;
+        }
+        return error.getClass() == other.error.getClass()
+                && Objects.equals(error.getMessage(), other.error.getMessage());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.android.popularmovies.repo;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of which pages of a feed were requested, which are in flight and which
+ * can already be displayed. At most maxInFlight pages are loaded at the same time,
+ * lower pages first, and never more than maxPagesAhead past the last page that can be
+ * shown. A page that was loaded is only requested again once it is evicted. A failed
+ * page is requested again by a call to requestUpTo once its cooldown is over, which
+ * starts at RETRY_BASE_MILLIS and doubles with every failure in a row, so scrolling
+ * while offline doesn't send a request per scroll event.
+ * Pages can finish in any order, only the contiguous range starting at page 1 is
+ * reported as displayable so the list is always ordered by page.
+ */
+class PageWindow {
+    private static final long RETRY_BASE_MILLIS = TimeUnit.SECONDS.toMillis(2);
+    private static final long RETRY_MAX_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    interface PageLoader {
+        /**
+         * Starts loading a page. Must eventually call onPageDone for that page.
+         */
+        void load(int page);
+    }
+
+    interface Clock {
+        /**
+         * @return monotonic time in millis
+         */
+        long millis();
+    }
+
+    private final int maxInFlight;
+    private final int maxPagesAhead;
+    private final PageLoader loader;
+    private final Clock clock;
+    private final BitSet requested = new BitSet();
+    private final BitSet available = new BitSet();
+    private final TreeSet<Integer> queue = new TreeSet<>();
+    // Failures in a row and the time a failed page may be requested again, by page
+    private final Map<Integer, Integer> failures = new HashMap<>();
+    private final Map<Integer, Long> retryAt = new HashMap<>();
+    private int inFlight;
+
+    PageWindow(int maxInFlight, int maxPagesAhead, PageLoader loader) {
+        this(maxInFlight, maxPagesAhead, loader,
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    PageWindow(int maxInFlight, int maxPagesAhead, PageLoader loader, Clock clock) {
+        this.maxInFlight = maxInFlight;
+        this.maxPagesAhead = maxPagesAhead;
+        this.loader = loader;
+        this.clock = clock;
+    }
+
+    /**
+     * Requests every page up to lastPage that wasn't requested yet and isn't cooling
+     * down from a failure, limited to maxPagesAhead past the contiguous page.
+     */
+    void requestUpTo(int lastPage) {
+        List<Integer> pagesToLoad;
+        synchronized (this) {
+            int limit = Math.min(lastPage, getContiguousPage() + maxPagesAhead);
+            long now = clock.millis();
+            for (int page = 1; page <= limit; page++) {
+                Long retryTime = retryAt.get(page);
+                if (!requested.get(page) && (retryTime == null || now >= retryTime)) {
+                    requested.set(page);
+                    queue.add(page);
+                }
+            }
+            pagesToLoad = drain();
+        }
+        load(pagesToLoad);
+    }
+
+    /**
+     * Marks a page as displayable, from the cache or from the network.
+     * @return true if the contiguous range grew
+     */
+    synchronized boolean onPageAvailable(int page) {
+        int before = getContiguousPage();
+        available.set(page);
+        failures.remove(page);
+        retryAt.remove(page);
+        return getContiguousPage() != before;
+    }
+
+    /**
+     * Forgets a page that was removed from the cache, so the next call to requestUpTo
+     * downloads it again. The contiguous range now ends before it.
+     */
+    synchronized void onPageEvicted(int page) {
+        available.clear(page);
+        requested.clear(page);
+    }
+
+    /**
+     * Frees the slot of a page and starts the next queued one.
+     * @param success false if the page couldn't be loaded
+     */
+    void onPageDone(int page, boolean success) {
+        List<Integer> pagesToLoad;
+        synchronized (this) {
+            inFlight--;
+            if (!success && !available.get(page)) {
+                requested.clear(page);
+                int failuresInRow = failures.containsKey(page) ? failures.get(page) + 1 : 1;
+                failures.put(page, failuresInRow);
+                long cooldown = RETRY_BASE_MILLIS << Math.min(failuresInRow - 1, 16);
+                retryAt.put(page, clock.millis() + Math.min(cooldown, RETRY_MAX_MILLIS));
+            }
+            pagesToLoad = drain();
+        }
+        load(pagesToLoad);
+    }
+
+    /**
+     * @return highest page n such that pages 1 to n can all be displayed, 0 if none
+     */
+    synchronized int getContiguousPage() {
+        return available.nextClearBit(1) - 1;
+    }
+
+    private List<Integer> drain() {
+        List<Integer> pagesToLoad = new ArrayList<>();
+        while (inFlight < maxInFlight && !queue.isEmpty()) {
+            pagesToLoad.add(queue.pollFirst());
+            inFlight++;
+        }
+        return pagesToLoad;
+    }
+
+    // Called outside the lock, loaders may complete synchronously
+    private void load(List<Integer> pages) {
+        for (int page : pages) {
+            loader.load(page);
+        }
+    }
+}
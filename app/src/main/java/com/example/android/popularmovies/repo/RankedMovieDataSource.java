@@ -0,0 +1,158 @@
+package com.example.android.popularmovies.repo;
+
+import com.example.android.popularmovies.data.Movie;
+import com.example.android.popularmovies.data.MovieDao;
+import com.example.android.popularmovies.data.MovieDatabase;
+import com.example.android.popularmovies.data.RankedMovie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import androidx.annotation.NonNull;
+import androidx.paging.DataSource;
+import androidx.paging.PositionalDataSource;
+import androidx.room.InvalidationTracker;
+
+/**
+ * Pages of a sorted feed for the Paging library. The list covers the positions of the
+ * first lastPage pages that run without a hole, so placeholders can stand in for rows
+ * that aren't read yet. A movie ranked on two pages is listed at its first position
+ * only, MovieIdIndex maps a list index to its MovieRank position, and every range is
+ * read with the keyset queries of MovieDao instead of OFFSET. The PagedList keeps a
+ * window of pages around the viewport and reads dropped pages again from here.
+ * Writes to Movie or MovieRank invalidate the source like Room's own data sources.
+ */
+class RankedMovieDataSource extends PositionalDataSource<Movie> {
+    private final MovieDao movieDao;
+    private final String sortBy;
+    private final PageWindow pages;
+    private final int lastPage;
+    // Read by loadInitial, ranges are loaded on other threads of the fetch executor
+    private volatile MovieIdIndex index;
+
+    private RankedMovieDataSource(MovieDatabase database, String sortBy, PageWindow pages,
+                                  int lastPage) {
+        this.movieDao = database.movieDao();
+        this.sortBy = sortBy;
+        this.pages = pages;
+        this.lastPage = lastPage;
+        InvalidationTracker.Observer observer = new InvalidationTracker.Observer(
+                "Movie", "MovieRank") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        database.getInvalidationTracker().addObserver(observer);
+        addInvalidatedCallback(() -> database.getInvalidationTracker().removeObserver(observer));
+    }
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams params,
+                            @NonNull LoadInitialCallback<Movie> callback) {
+        int rankCount = movieDao.countContiguousRanks(sortBy, lastPage);
+        forgetEvictedPage(rankCount);
+        index = new MovieIdIndex(movieDao.getRankedMovieIds(sortBy, rankCount));
+        int totalCount = index.size();
+        int start = computeInitialLoadPosition(params, totalCount);
+        int size = computeInitialLoadSize(params, start, totalCount);
+        List<Movie> movies = read(start, size);
+        checkComplete(movies, size);
+        callback.onResult(movies, start, totalCount);
+    }
+
+    @Override
+    public void loadRange(@NonNull LoadRangeParams params,
+                          @NonNull LoadRangeCallback<Movie> callback) {
+        List<Movie> movies = read(params.startPosition, params.loadSize);
+        checkComplete(movies, params.loadSize);
+        callback.onResult(movies);
+    }
+
+    /**
+     * Reads the movies of list indexes [start, start + size), skipping the ranks of
+     * movies that are listed further up.
+     */
+    private List<Movie> read(int start, int size) {
+        List<Movie> movies = new ArrayList<>(size);
+        if (size == 0) {
+            return movies;
+        }
+        int afterPosition = index.positionAt(start) - 1;
+        int lastPosition = index.positionAt(start + size - 1);
+        while (afterPosition < lastPosition) {
+            List<RankedMovie> slice =
+                    movieDao.getRankedAfter(sortBy, afterPosition, lastPosition - afterPosition);
+            if (slice.isEmpty()) {
+                break;
+            }
+            for (RankedMovie rankedMovie : slice) {
+                if (index.positionOf(rankedMovie.getMovie().getId())
+                        == rankedMovie.getPosition()) {
+                    movies.add(rankedMovie.getMovie());
+                }
+            }
+            afterPosition = slice.get(slice.size() - 1).getPosition();
+        }
+        return movies;
+    }
+
+    /**
+     * Cache eviction removes whole feed pages and leaves a hole in the positions. The
+     * list then ends before the hole, and the page is downloaded again when the list
+     * reaches its end.
+     */
+    private void forgetEvictedPage(int rankCount) {
+        if (rankCount >= lastPage * MovieDao.PAGE_SIZE) {
+            return;
+        }
+        int page = rankCount / MovieDao.PAGE_SIZE + 1;
+        // The last page of a feed can be short without being evicted
+        if (movieDao.getPageFetchedAt(sortBy, page) == 0) {
+            pages.onPageEvicted(page);
+        }
+    }
+
+    /**
+     * Rows deleted since the count was taken make a range short. Paging rejects that
+     * from a valid source, and the write that deleted them invalidates it anyway.
+     */
+    private void checkComplete(List<Movie> movies, int expectedSize) {
+        if (movies.size() != expectedSize) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Creates the source of a feed for its current contiguous page, and invalidates
+     * it when more pages become displayable.
+     */
+    static class Factory extends DataSource.Factory<Integer, Movie> {
+        private final MovieDatabase database;
+        private final SortedFeed feed;
+        private volatile RankedMovieDataSource current;
+
+        Factory(MovieDatabase database, SortedFeed feed) {
+            this.database = database;
+            this.feed = feed;
+        }
+
+        @NonNull
+        @Override
+        public DataSource<Integer, Movie> create() {
+            current = new RankedMovieDataSource(database,
+                    feed.getSortOrder().getPath(),
+                    feed.getPages(),
+                    feed.getPages().getContiguousPage());
+            return current;
+        }
+
+        void invalidate() {
+            RankedMovieDataSource source = current;
+            if (source != null) {
+                source.invalidate();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.android.popularmovies.repo;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide record of the movies whose details (with reviews and trailers) were
+ * stored recently, by the detail screen or by DetailHydrator. Their detail screen is
+ * shown from the database without asking TMDb again.
+ */
+class RecentDetails {
+    private static final int MAX_ENTRIES = 200;
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(30);
+
+    private static RecentDetails INSTANCE;
+
+    // Movie id to the time its details were stored
+    private final LruCache<Integer, Long> storedAt = new LruCache<>(MAX_ENTRIES);
+
+    static synchronized RecentDetails getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new RecentDetails();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if the details were stored less than MAX_AGE ago
+     */
+    boolean isFresh(int movieId) {
+        Long time = storedAt.get(movieId);
+        return time != null && SystemClock.elapsedRealtime() - time < MAX_AGE;
+    }
+
+    void markStored(int movieId) {
+        storedAt.put(movieId, SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * Forgets a movie whose details couldn't be stored, so they are downloaded again.
+     */
+    void forget(int movieId) {
+        storedAt.remove(movieId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.android.popularmovies.repo;
+
+/**
+ * Sorted TMDb feeds the list can show. Each one keeps its own pages and ranking rows,
+ * movies shared by several feeds are stored once.
+ */
+public enum SortOrder {
+    POPULAR("popular"),
+    TOP_RATED("top_rated");
+
+    private final String path;
+
+    SortOrder(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return TMDb path of the feed, also the sortBy key of its MovieRank rows
+     */
+    public String getPath() {
+        return path;
+    }
+}
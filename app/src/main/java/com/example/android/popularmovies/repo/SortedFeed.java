@@ -0,0 +1,86 @@
+package com.example.android.popularmovies.repo;
+
+import com.example.android.popularmovies.data.Movie;
+import com.example.android.popularmovies.data.MovieDao;
+import com.example.android.popularmovies.data.MovieDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
+
+/**
+ * State of one sort order: which of its pages are requested and displayable, and a
+ * PagedList over the displayable ones. It outlives sort switches, so going back to a
+ * feed shows what was loaded before without asking TMDb again.
+ */
+class SortedFeed {
+    // Rows kept in memory around the visible ones, the rest are placeholders
+    private static final int PREFETCH_DISTANCE = 3 * MovieDao.PAGE_SIZE;
+    private static final int MAX_LOADED_ROWS = 12 * MovieDao.PAGE_SIZE;
+
+    interface FeedLoader {
+        /**
+         * Starts loading a page of a feed. Must eventually call onPageDone on its pages.
+         */
+        void load(SortedFeed feed, int page);
+    }
+
+    private final SortOrder sortOrder;
+    private final PageWindow pages;
+    private final RankedMovieDataSource.Factory dataSources;
+    private final LiveData<PagedList<Movie>> movies;
+
+    SortedFeed(SortOrder sortOrder, MovieDatabase database, int maxPagesInFlight,
+               int maxPagesAhead, FeedLoader loader) {
+        this.sortOrder = sortOrder;
+        pages = new PageWindow(maxPagesInFlight, maxPagesAhead, page -> loader.load(this, page));
+        dataSources = new RankedMovieDataSource.Factory(database, this);
+        PagedList.Config config = new PagedList.Config.Builder()
+                .setPageSize(MovieDao.PAGE_SIZE)
+                .setPrefetchDistance(PREFETCH_DISTANCE)
+                .setInitialLoadSizeHint(PREFETCH_DISTANCE)
+                .setEnablePlaceholders(true)
+                .setMaxSize(MAX_LOADED_ROWS)
+                .build();
+        movies = new LivePagedListBuilder<>(dataSources, config)
+                .setFetchExecutor(database.getQueryExecutor())
+                .setBoundaryCallback(new PagedList.BoundaryCallback<Movie>() {
+                    @Override
+                    public void onZeroItemsLoaded() {
+                        pages.requestUpTo(1);
+                    }
+
+                    // The grid reached the last stored row, load the next TMDb page
+                    @Override
+                    public void onItemAtEndLoaded(@NonNull Movie itemAtEnd) {
+                        pages.requestUpTo(pages.getContiguousPage() + 1);
+                    }
+                })
+                .build();
+    }
+
+    SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    PageWindow getPages() {
+        return pages;
+    }
+
+    /**
+     * @return movies of the contiguous displayable pages, in server order
+     */
+    LiveData<PagedList<Movie>> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Extends the list once the pages before this one are displayable too.
+     */
+    void onPageAvailable(int page) {
+        if (pages.onPageAvailable(page)) {
+            dataSources.invalidate();
+        }
+    }
+}
@@ -12,6 +12,9 @@ import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
 import com.example.android.popularmovies.R;
+import com.example.android.popularmovies.data.MovieDatabase;
+import com.example.android.popularmovies.repo.CacheEvictionWorker;
+import com.example.android.popularmovies.repo.CatalogSyncWorker;
 import com.google.android.material.navigation.NavigationView;
 
 import java.util.Objects;
@@ -23,6 +26,8 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Migrate and open movie-db while the views inflate
+        MovieDatabase.openInBackground(this);
         setContentView(R.layout.activity_main);
         // Find navController
         NavController navController = Navigation.findNavController(this, R.id.nav_host_fragment);
@@ -39,6 +44,10 @@ public class MainActivity extends AppCompatActivity {
         // Set click listener for drawer menu items
         setDrawerItemClickListener();
         NavigationUI.setupWithNavController(toolbar, navController, appBarConfiguration);
+        // Keep the cached pages fresh while the phone charges
+        CatalogSyncWorker.schedule();
+        // and keep movie-db bounded while it is idle
+        CacheEvictionWorker.schedule();
     }
 
     private void setActionBarIcon() {
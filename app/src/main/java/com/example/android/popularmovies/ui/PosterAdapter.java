@@ -8,7 +8,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.DiffUtil;
+import androidx.paging.PagedListAdapter;
+import androidx.recyclerview.widget.AsyncDifferConfig;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -16,21 +17,33 @@ import com.example.android.popularmovies.R;
 import com.example.android.popularmovies.data.Movie;
 import com.example.android.popularmovies.utilities.PosterDiffCallback;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Created by AaronC on 7/26/2017.
+ * Shows a PagedList of movies. Rows that aren't read from the database yet are null
+ * and bound as empty placeholders, lists are diffed on a background thread.
  */
-public class PosterAdapter extends RecyclerView.Adapter<PosterAdapter.MoviePosterAdapterViewHolder>{
+public class PosterAdapter extends PagedListAdapter<Movie, PosterAdapter.MoviePosterAdapterViewHolder> {
 
     private static final String TAG = "PopM";
+    // Id of a holder bound to a placeholder, TMDb ids are positive
+    private static final int NO_MOVIE = 0;
 
     private Context context;
-    private ArrayList<Movie> movieArrayList = new ArrayList<>();
     private PosterAdapterClickListener listener;
-
-    public PosterAdapter(Context context, PosterAdapterClickListener listener){
+    private PosterVisibilityListener visibilityListener;
+    // Width of a grid column, a poster is shown no wider than that
+    private int columnWidth = Integer.MAX_VALUE;
+
+    /**
+     * @param diffExecutor runs the diffs of new lists, it must outlive the adapter
+     */
+    public PosterAdapter(Context context, PosterAdapterClickListener listener,
+                         Executor diffExecutor){
+        super(new AsyncDifferConfig.Builder<>(new PosterDiffCallback())
+                .setBackgroundThreadExecutor(diffExecutor)
+                .build());
         this.context = context;
         this.listener = listener;
     }
@@ -46,41 +59,80 @@ public class PosterAdapter extends RecyclerView.Adapter<PosterAdapter.MoviePoste
 
     @Override
     public void onBindViewHolder(@NonNull MoviePosterAdapterViewHolder holder, int position) {
-        holder.onBind(movieArrayList.get(position));
+        int previousId = holder.movieId;
+        holder.onBind(getItem(position));
+        // A placeholder filled in while on screen isn't attached again
+        if (holder.movieId != previousId && holder.itemView.isAttachedToWindow()) {
+            notifyHidden(previousId);
+            notifyShown(holder.movieId);
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(@NonNull MoviePosterAdapterViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        notifyShown(holder.movieId);
     }
 
     @Override
-    public int getItemCount() {
-        if (null == movieArrayList) return 0;
-        return movieArrayList.size();
+    public void onViewDetachedFromWindow(@NonNull MoviePosterAdapterViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        notifyHidden(holder.movieId);
     }
 
-    public void updateMoviesList(List<Movie> newMoviesList) {
-        DiffUtil.DiffResult diffResult =
-                DiffUtil.calculateDiff(new PosterDiffCallback(this.movieArrayList, newMoviesList));
+    private void notifyShown(int movieId) {
+        if (visibilityListener != null && movieId != NO_MOVIE) {
+            visibilityListener.onPosterShown(movieId);
+        }
+    }
 
-        movieArrayList.clear();
-        movieArrayList.addAll(newMoviesList);
-        diffResult.dispatchUpdatesTo(this);
+    private void notifyHidden(int movieId) {
+        if (visibilityListener != null && movieId != NO_MOVIE) {
+            visibilityListener.onPosterHidden(movieId);
+        }
+    }
+
+    public void setVisibilityListener(PosterVisibilityListener visibilityListener) {
+        this.visibilityListener = visibilityListener;
+    }
+
+    /**
+     * Sizes the downloaded posters to the grid, so narrow columns load smaller images.
+     * @param columnWidth in pixels
+     */
+    public void setColumnWidth(int columnWidth) {
+        this.columnWidth = columnWidth;
     }
 
     class MoviePosterAdapterViewHolder extends RecyclerView.ViewHolder {
         final TextView tvTitle;
         final ImageView moviePoster;
+        int movieId;
 
         MoviePosterAdapterViewHolder(View itemView) {
             super(itemView);
-            itemView.setOnClickListener(v ->
-                    listener.onPosterClick(movieArrayList.get(getAdapterPosition()).getId()));
+            itemView.setOnClickListener(v -> {
+                if (movieId != NO_MOVIE) {
+                    listener.onPosterClick(movieId);
+                }
+            });
             tvTitle = itemView.findViewById(R.id.tv_movie_title);
             moviePoster = itemView.findViewById(R.id.iv_movie_poster);
         }
 
         void onBind(Movie movie) {
+            if (movie == null) {
+                movieId = NO_MOVIE;
+                tvTitle.setText(null);
+                Glide.with(context).clear(moviePoster);
+                return;
+            }
+            movieId = movie.getId();
             tvTitle.setText(movie.getTitle());
             //Load the image into the ImageView
+            int posterWidth = Math.min(moviePoster.getLayoutParams().width, columnWidth);
             Glide.with(context)
-                    .load(movie.getPosterUriString())
+                    .load(movie.getPosterUriString(posterWidth))
                     .into(moviePoster);
         }
     }
@@ -88,4 +140,10 @@ public class PosterAdapter extends RecyclerView.Adapter<PosterAdapter.MoviePoste
     public interface PosterAdapterClickListener {
         void onPosterClick(int movieId);
     }
+
+    public interface PosterVisibilityListener {
+        void onPosterShown(int movieId);
+
+        void onPosterHidden(int movieId);
+    }
 }
\ No newline at end of file
@@ -9,7 +9,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android.popularmovies.R;
-import com.example.android.popularmovies.data.Movies.Result;
+import com.example.android.popularmovies.data.Review;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +19,7 @@ import java.util.List;
  */
 public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ReviewAdapterViewHolder> {
 
-    private ArrayList<Result> mReviewArrayList = new ArrayList<>();
+    private ArrayList<Review> mReviewArrayList = new ArrayList<>();
 
 
     public ReviewAdapter() {
@@ -55,7 +55,7 @@ public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ReviewAdap
      * Clears previous data from the ArrayList of Reviews, adds new Reviews, then notifies the Adapter
      * @param mReviewArrayList arrayList containing the reviews
      */
-    public void updateReviewList(List<Result> mReviewArrayList) {
+    public void updateReviewList(List<Review> mReviewArrayList) {
         this.mReviewArrayList.clear();
         this.mReviewArrayList.addAll(mReviewArrayList);
         notifyDataSetChanged();
@@ -73,9 +73,9 @@ public class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ReviewAdap
             view = itemView.findViewById(R.id.v_seperator);
         }
 
-        void bind(Result result) {
-            author.setText(result.getAuthor());
-            content.setText(result.getContent());
+        void bind(Review review) {
+            author.setText(review.getAuthor());
+            content.setText(review.getContent());
         }
     }
 }
\ No newline at end of file
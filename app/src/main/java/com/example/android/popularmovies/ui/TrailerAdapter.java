@@ -9,7 +9,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.android.popularmovies.ApiKeyFile;
 import com.example.android.popularmovies.R;
-import com.example.android.popularmovies.data.Movies.Result;
+import com.example.android.popularmovies.data.Trailer;
 import com.google.android.youtube.player.YouTubeInitializationResult;
 import com.google.android.youtube.player.YouTubeThumbnailLoader;
 import com.google.android.youtube.player.YouTubeThumbnailView;
@@ -22,7 +22,7 @@ import java.util.List;
  */
 public class TrailerAdapter extends RecyclerView.Adapter<TrailerAdapter.TrailerAdapterViewHolder> {
 
-    private ArrayList<Result> trailerArrayList = new ArrayList<>();
+    private ArrayList<Trailer> trailerArrayList = new ArrayList<>();
     private TrailerAdapterListener listener;
 
     public interface TrailerAdapterListener {
@@ -73,7 +73,7 @@ public class TrailerAdapter extends RecyclerView.Adapter<TrailerAdapter.TrailerA
      * Clears previous data from the ArrayList of keys, adds new keys, then notifies the Adapter
      * @param trailerArrayList arrayList containing the trailer video keys
      */
-    public void setTrailerArrayList(List<Result> trailerArrayList) {
+    public void setTrailerArrayList(List<Trailer> trailerArrayList) {
         this.trailerArrayList.clear();
         this.trailerArrayList.addAll(trailerArrayList);
         notifyDataSetChanged();
@@ -90,8 +90,8 @@ public class TrailerAdapter extends RecyclerView.Adapter<TrailerAdapter.TrailerA
                     listener.onTrailerInteraction(itemView.getTag().toString()));
         }
 
-        void onBind(Result result) {
-            final String trailerKey = result.getKey();
+        void onBind(Trailer trailer) {
+            final String trailerKey = trailer.getKey();
             itemView.setTag(trailerKey);
             trailerThumbnail.initialize(ApiKeyFile.YOUTUBE_API_KEY, new YouTubeThumbnailView.OnInitializedListener() {
                 @Override
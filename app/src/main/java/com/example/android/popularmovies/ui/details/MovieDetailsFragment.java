@@ -40,21 +40,18 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.android.popularmovies.ApiKeyFile;
 import com.example.android.popularmovies.R;
+import com.example.android.popularmovies.data.EpochDays;
 import com.example.android.popularmovies.data.Movie;
-import com.example.android.popularmovies.data.Movies;
+import com.example.android.popularmovies.data.Review;
+import com.example.android.popularmovies.data.Trailer;
+import com.example.android.popularmovies.repo.NetworkState;
 import com.example.android.popularmovies.ui.ReviewAdapter;
 import com.example.android.popularmovies.ui.TrailerAdapter;
-import com.example.android.popularmovies.utilities.NetworkUtils;
 import com.example.android.popularmovies.viewmodel.MovieDetailsViewModel;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.youtube.player.YouTubeStandalonePlayer;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
 
 /**
  * A simple {@link Fragment} subclass.
@@ -73,6 +70,8 @@ public class MovieDetailsFragment extends Fragment implements TrailerAdapter.Tra
     private TextView tvReleaseDate;
     private ImageView ivDetailsPoster;
     private ImageView ivBackDrop;
+    private FloatingActionButton fabFavorite;
+    private MovieDetailsViewModel viewModel;
     private int movieId;
 
     public MovieDetailsFragment() {
@@ -116,29 +115,45 @@ public class MovieDetailsFragment extends Fragment implements TrailerAdapter.Tra
                         false));
         trailerAdapter = new TrailerAdapter(this);
         rvMovieTrailers.setAdapter(trailerAdapter);
-        // private Boolean favorite = false;
-        FloatingActionButton floatingActionButton = view.findViewById(R.id.floatingActionButton);
+        fabFavorite = view.findViewById(R.id.floatingActionButton);
         //Setup the add to favorites button
-        floatingActionButton.setOnClickListener(v -> {
-            // TODO 6/30/2019 : Implement FAB click - Emre
-        });
+        fabFavorite.setOnClickListener(v -> viewModel.toggleFavorite());
+        // Nothing to mark until the movie is stored
+        fabFavorite.setEnabled(false);
         return view;
     }
 
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
-        MovieDetailsViewModel viewModel = ViewModelProviders
+        viewModel = ViewModelProviders
                 .of(this)
                 .get(MovieDetailsViewModel.class);
         // Set movieId
         viewModel.setMovieId(movieId);
         // Observe data
+        // Stored details show at once, a download in the background updates them
         viewModel.getMovieDetails().observe(this, movie -> {
+            if (movie == null) {
+                return;
+            }
+            fabFavorite.setEnabled(true);
             getDetailsText(movie);
             getPosterAndBackdrop(movie);
             loadTrailersAndReviews(movie);
         });
+        viewModel.isFavorite().observe(this, favorite -> fabFavorite.setImageResource(
+                Boolean.TRUE.equals(favorite)
+                        ? R.drawable.ic_favorite_red_48dp
+                        : R.drawable.ic_favorite_black_48dp));
+        viewModel.getNetworkState().observe(this, state -> {
+            if (state.getStatus() == NetworkState.Status.FAILED) {
+                Toast.makeText(getContext(),
+                        state.isCircuitOpen() ? R.string.network_paused : R.string.network_error,
+                        Toast.LENGTH_SHORT)
+                        .show();
+            }
+        });
     }
 
     @Override
@@ -156,14 +171,7 @@ public class MovieDetailsFragment extends Fragment implements TrailerAdapter.Tra
         tvTitle.setText(movie.getTitle());
         tvRating.setText(String.valueOf(movie.getVoteAverage()));
         tvOverview.setText(movie.getOverview());
-        Date date = null;
-        try {
-            date = new SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH).parse(movie.getReleaseDate());
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-        String dateString = new SimpleDateFormat("MMMM d, yyyy", Locale.ENGLISH).format(date);
-        tvReleaseDate.setText(dateString);
+        tvReleaseDate.setText(EpochDays.toDisplayString(movie.getReleaseDate()));
     }
 
     /**
@@ -174,50 +182,38 @@ public class MovieDetailsFragment extends Fragment implements TrailerAdapter.Tra
     private void getPosterAndBackdrop(Movie movie) {
         //Load the poster into the ImageView
         Glide.with(this)
-                .load(movie.getPosterUriString())
+                .load(movie.getPosterUriString(ivDetailsPoster.getLayoutParams().width))
                 .into(ivDetailsPoster);
-        //Load the backdrop into its ImageView
+        //Load the backdrop into its ImageView, it spans the screen
         Glide.with(this)
-                .load(movie.getBackdropUriString())
+                .load(movie.getBackdropUriString(getResources().getDisplayMetrics().widthPixels))
                 .into(ivBackDrop);
     }
 
+    /**
+     * Shows the stored trailers and reviews, also offline. A movie that was only seen
+     * in the list has none stored yet, its cards appear once the download is stored.
+     */
     private void loadTrailersAndReviews(Movie movie) {
-        //Remove the trailers and reviews from the layout if there is no network connection
-        if (!NetworkUtils.isOnline(Objects.requireNonNull(getContext()))){
-            Toast.makeText(getContext(),
-                    "Trailers and reviews can't be viewed offline",
-                    Toast.LENGTH_SHORT)
-                    .show();
-            cvTrailers.setVisibility(View.GONE);
-            cvReviews.setVisibility(View.GONE);
-            return;
-        }
-        List<Movies.Result> reviewsList = movie.getReviews().getResults();
+        List<Review> reviewsList = movie.getReviews().getResults();
         if (reviewsList.size() > 0){
             reviewAdapter.updateReviewList(reviewsList);
+            cvReviews.setVisibility(View.VISIBLE);
         } else {
             //Hide the reviews CardView if there are no reviews
             cvReviews.setVisibility(View.GONE);
         }
         //Save the trailers' data to an arrayList to send to its RecyclerView.Adapter
-        List<Movies.Result> trailersList = movie.getVideos().getResults();
+        List<Trailer> trailersList = movie.getVideos().getResults();
         if (trailersList.size() > 0){
             trailerAdapter.setTrailerArrayList(trailersList);
+            cvTrailers.setVisibility(View.VISIBLE);
         } else {
             //Hide the trailers CardView if there are no trailers
             cvTrailers.setVisibility(View.GONE);
         }
     }
 
-    /**
-     * Adds a movie to the database
-     * @param movie the movie to be added to the database
-     */
-    private void insertFavoriteToDb(Movie movie) {
-        // TODO 6/28/2019 NEW FEAT: Add movie to Room - Aaron
-    }
-
     @Override
     public void onTrailerInteraction(String tag) {
         Intent intent = YouTubeStandalonePlayer.createVideoIntent(
@@ -22,6 +22,7 @@ import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProviders;
 import androidx.navigation.Navigation;
@@ -30,31 +31,31 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import android.util.DisplayMetrics;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Toast;
 
 import com.example.android.popularmovies.R;
-import com.example.android.popularmovies.data.Movie;
+import com.example.android.popularmovies.data.MovieDatabase;
+import com.example.android.popularmovies.repo.NetworkState;
+import com.example.android.popularmovies.repo.SortOrder;
 import com.example.android.popularmovies.ui.PosterAdapter;
 import com.example.android.popularmovies.ui.details.MovieDetailsFragment;
-import com.example.android.popularmovies.utilities.EndlessRecyclerViewScrollListener;
-import com.example.android.popularmovies.utilities.NetworkUtils;
+import com.example.android.popularmovies.utilities.PrefetchScrollListener;
 import com.example.android.popularmovies.viewmodel.MovieListViewModel;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 /**
  * Created by androidpirate.
  */
 public class MovieListFragment extends Fragment
-    implements PosterAdapter.PosterAdapterClickListener {
+    implements PosterAdapter.PosterAdapterClickListener,
+        PosterAdapter.PosterVisibilityListener {
 
-    private static final String FAVORITES = "favorites";
-
-    private List<Movie> moviesArrayList = new ArrayList<>();
-    private String sortBySelectionString = "popular";
     private RecyclerView recyclerView;
     private PosterAdapter adapter;
     private MovieListViewModel viewModel;
@@ -80,7 +81,12 @@ public class MovieListFragment extends Fragment
         recyclerView = view.findViewById(R.id.rv_list);
         // Setup GridLayoutManager
         setLayoutManager();
-        adapter = new PosterAdapter(getContext(), this);
+        // Diffs share movie-db's query threads, which live as long as the app
+        adapter = new PosterAdapter(getContext(), this,
+                MovieDatabase.getDatabase(requireContext()).getQueryExecutor());
+        adapter.setVisibilityListener(this);
+        adapter.setColumnWidth(getResources().getDisplayMetrics().widthPixels
+                / ((GridLayoutManager) recyclerView.getLayoutManager()).getSpanCount());
         recyclerView.setAdapter(adapter);
         return view;
     }
@@ -90,12 +96,77 @@ public class MovieListFragment extends Fragment
         super.onActivityCreated(savedInstanceState);
         viewModel = ViewModelProviders.of(this)
                 .get(MovieListViewModel.class);
-        if(isConnectedToNetwork()) {
-            viewModel.getMovies()
-                    .observe(this, movies -> {
-                        moviesArrayList.addAll(movies);
-                        adapter.updateMoviesList(moviesArrayList);
-                    });
+        // Cached pages are emitted first, network results replace them once stored
+        viewModel.getMovies()
+                .observe(this, adapter::submitList);
+        viewModel.getNetworkState()
+                .observe(this, this::showNetworkState);
+    }
+
+    @Override
+    public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
+        super.onCreateOptionsMenu(menu, inflater);
+        inflater.inflate(R.menu.menu_main, menu);
+        setupSearch(menu.findItem(R.id.search));
+    }
+
+    /**
+     * Searches the stored movies while the user types, the ViewModel debounces it.
+     */
+    private void setupSearch(MenuItem searchItem) {
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        // Still searching after a rotation
+        String searchText = viewModel.getSearchText();
+        if (!searchText.isEmpty()) {
+            searchItem.expandActionView();
+            searchView.setQuery(searchText, false);
+        }
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                viewModel.setSearchText(query);
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                // Also called with "" when the search is closed
+                viewModel.setSearchText(newText);
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.popular:
+                showSortOrder(SortOrder.POPULAR);
+                return true;
+            case R.id.top_rated:
+                showSortOrder(SortOrder.TOP_RATED);
+                return true;
+            case R.id.favorites:
+                if (!viewModel.isShowingFavorites()) {
+                    viewModel.showFavorites();
+                    recyclerView.scrollToPosition(0);
+                }
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
+    /**
+     * Switches the grid to another feed, or back from the favorites. Its cached pages
+     * are shown right away.
+     */
+    private void showSortOrder(SortOrder order) {
+        if (viewModel.isShowingFavorites() || order != viewModel.getSortOrder().getValue()) {
+            viewModel.setSortOrder(order);
+            recyclerView.scrollToPosition(0);
         }
     }
 
@@ -104,6 +175,21 @@ public class MovieListFragment extends Fragment
         navigateToDetail(movieId);
     }
 
+    @Override
+    public void onPosterShown(int movieId) {
+        // Details of posters the user lingers on are fetched before the tap
+        if (viewModel != null) {
+            viewModel.onPosterShown(movieId);
+        }
+    }
+
+    @Override
+    public void onPosterHidden(int movieId) {
+        if (viewModel != null) {
+            viewModel.onPosterHidden(movieId);
+        }
+    }
+
     /**
      * Calculates the number of columns and sets a grid layout manager for recyclerView.
      */
@@ -111,7 +197,7 @@ public class MovieListFragment extends Fragment
         int noOfColumns = calculateNoOfColumns();
         GridLayoutManager layoutManager = new GridLayoutManager(getContext(), noOfColumns);
         // Setup endless scrolling
-        setupEndlessScrolling(layoutManager);
+        setupPrefetchScrolling(layoutManager);
         recyclerView.setLayoutManager(layoutManager);
     }
 
@@ -129,36 +215,40 @@ public class MovieListFragment extends Fragment
     }
 
     /**
-     * Loads more pages to recycler view on the fly.
+     * Loads more pages to recycler view on the fly, further ahead the faster the user scrolls.
      * @param layoutManager recyclerView layout manager
      */
-    private void setupEndlessScrolling(GridLayoutManager layoutManager) {
-        //Construct a new Endless Scroll Listener and pass it the GridLayoutManager
-        EndlessRecyclerViewScrollListener scrollListener = new EndlessRecyclerViewScrollListener(layoutManager) {
+    private void setupPrefetchScrolling(GridLayoutManager layoutManager) {
+        //Construct a new Prefetch Scroll Listener and pass it the GridLayoutManager
+        PrefetchScrollListener scrollListener = new PrefetchScrollListener(layoutManager) {
             @Override
-            public void onLoadMore(int page, int totalItemsCount, RecyclerView view) {
-                //Use field page instead of the parameter for this method
-                //Using the parameter page caused the same page of result to be loaded multiple times
-                /**
-                 * TODO: 2019-07-05 REFACTOR
-                 *  Replace "FAVORITES" with "SELECTED_SORT_OPTION" instead. We will have multiple
-                 *  options of sorting our movies later.
-                 *  - Aaron
-                 */
-                if (!sortBySelectionString.equals(FAVORITES)){
-                    viewModel.loadMovies();
-                }
+            public void onPrefetch(int itemCount) {
+                // Loads pages of the selected sort order
+                viewModel.loadMovies(itemCount);
             }
         };
-        //Add an OnScrollListener to the RecyclerView and pass it the Endless Scroll Listener
+        //Add an OnScrollListener to the RecyclerView and pass it the Prefetch Scroll Listener
         recyclerView.addOnScrollListener(scrollListener);
     }
 
     /**
-     * Checks for network connection status.
+     * Tells the user when the list can't be refreshed from TMDb.
      */
-    private boolean isConnectedToNetwork() {
-        return NetworkUtils.isOnline(Objects.requireNonNull(getContext()));
+    private void showNetworkState(NetworkState state) {
+        int message;
+        switch (state.getStatus()) {
+            case STALE:
+                message = R.string.network_showing_saved;
+                break;
+            case FAILED:
+                message = state.isCircuitOpen()
+                        ? R.string.network_paused
+                        : R.string.network_error;
+                break;
+            default:
+                return;
+        }
+        Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
     }
 
     /**
@@ -0,0 +1,68 @@
+package com.example.android.popularmovies.utilities;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Network interceptor that gives TMDb responses a usable cache lifetime.
+ * TMDb sends short or missing max-age values, so without this every page would
+ * be downloaded again. The ETag and Last-Modified headers are left untouched, so
+ * once an entry expires OkHttp revalidates it with If-None-Match/If-Modified-Since
+ * and an unchanged page comes back as an empty 304.
+ */
+public class CacheControlInterceptor implements Interceptor {
+    // Sorted pages change a few times a day
+    static final int LIST_MAX_AGE = (int) TimeUnit.HOURS.toSeconds(1);
+    // Details, reviews and trailers of a movie rarely change
+    static final int DETAILS_MAX_AGE = (int) TimeUnit.DAYS.toSeconds(1);
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String PRAGMA = "Pragma";
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        if (!"GET".equals(request.method()) || !response.isSuccessful()) {
+            return response;
+        }
+        CacheControl serverPolicy = response.cacheControl();
+        int maxAge = maxAgeFor(request);
+        if (serverPolicy.noStore() || serverPolicy.maxAgeSeconds() >= maxAge) {
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader(PRAGMA)
+                .header(CACHE_CONTROL, "public, max-age=" + maxAge)
+                .build();
+    }
+
+    /**
+     * @return the cache lifetime in seconds for the endpoint the request goes to
+     */
+    static int maxAgeFor(Request request) {
+        return isDetailsRequest(request) ? DETAILS_MAX_AGE : LIST_MAX_AGE;
+    }
+
+    /**
+     * Details are requested by movie id, sorted lists by name ("popular", "top_rated").
+     */
+    static boolean isDetailsRequest(Request request) {
+        List<String> segments = request.url().pathSegments();
+        String last = segments.get(segments.size() - 1);
+        if (last.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < last.length(); i++) {
+            if (!Character.isDigit(last.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.android.popularmovies.utilities;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Stops sending requests to TMDb after failureThreshold consecutive failures (I/O
+ * errors or 5xx). While open every request fails at once with CircuitOpenException,
+ * which StaleIfErrorInterceptor turns into the cached copy if there is one. After
+ * openMillis a single trial request is let through: success closes the circuit,
+ * failure opens it again. Requests that may only be answered from the cache always
+ * pass, they never reach the network.
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int SERVER_ERROR = 500;
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openDuration how long to wait before the trial request
+     */
+    public CircuitBreakerInterceptor(int failureThreshold, long openDuration, TimeUnit unit) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+        if (!allowRequest()) {
+            throw new CircuitOpenException();
+        }
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            // Our own rate limit says nothing about TMDb's health either
+            if (chain.call().isCanceled() || e instanceof RateLimitedException) {
+                onCanceled();
+            } else {
+                onFailure();
+            }
+            throw e;
+        }
+        if (response.code() >= SERVER_ERROR) {
+            onFailure();
+        } else {
+            onSuccess();
+        }
+        return response;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                // Half open, only one trial at a time
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    // A canceled trial says nothing about TMDb, let the next request try
+    private synchronized void onCanceled() {
+        trialInFlight = false;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.android.popularmovies.utilities;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of calling TMDb while the circuit breaker is open.
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException() {
+        super("TMDb is failing, requests are paused");
+    }
+}
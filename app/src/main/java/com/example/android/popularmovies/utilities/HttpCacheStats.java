@@ -0,0 +1,85 @@
+package com.example.android.popularmovies.utilities;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Application interceptor that counts how responses were served: straight from the
+ * disk cache, revalidated with a 304, or downloaded. Bytes of cached bodies are added
+ * up so the bandwidth saved during a session can be logged.
+ */
+public class HttpCacheStats implements Interceptor {
+    private static final int NOT_MODIFIED = 304;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong conditionalHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        Response networkResponse = response.networkResponse();
+        if (response.cacheResponse() == null) {
+            missCount.incrementAndGet();
+            return response;
+        }
+        if (networkResponse == null) {
+            hitCount.incrementAndGet();
+        } else if (networkResponse.code() == NOT_MODIFIED) {
+            conditionalHitCount.incrementAndGet();
+        } else {
+            // Cached copy was stale and the server sent a new body
+            missCount.incrementAndGet();
+            return response;
+        }
+        ResponseBody body = response.body();
+        if (body != null && body.contentLength() > 0) {
+            bytesSaved.addAndGet(body.contentLength());
+        }
+        return response;
+    }
+
+    /**
+     * @return responses served from the cache without touching the network
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return responses revalidated by the server with a 304
+     */
+    public long getConditionalHitCount() {
+        return conditionalHitCount.get();
+    }
+
+    /**
+     * @return responses whose body had to be downloaded
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return body bytes that didn't have to be downloaded
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH,
+                "hits=%d, 304s=%d, misses=%d, saved=%d KiB",
+                getHitCount(),
+                getConditionalHitCount(),
+                getMissCount(),
+                getBytesSaved() / 1024);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.popularmovies.utilities;
+
+import android.content.Context;
+
+import com.example.android.popularmovies.data.Movie;
+import com.example.android.popularmovies.data.MovieJsonAdapters;
+import com.example.android.popularmovies.data.Movies;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Process-wide network stack for TMDb. Every repository shares the same OkHttpClient,
+ * so there is one connection pool, one dispatcher and one HTTP cache, and all calls
+ * are multiplexed over a kept-alive HTTPS/HTTP2 connection. Calls are queued by
+ * priority in one RequestScheduler, and duplicates are joined by the coalescers.
+ */
+public final class MovieDbNetwork {
+    public static final String MOVIE_DB_BASE_URL = "https://api.themoviedb.org/3/movie/";
+    private static final String HTTP_CACHE_DIR = "http";
+
+    private static NetworkConfig config = NetworkConfig.DEFAULT;
+    private static MovieDbNetwork INSTANCE;
+
+    private final OkHttpClient okHttpClient;
+    private final MovieDbService movieDbService;
+    private final HttpCacheStats httpCacheStats = new HttpCacheStats();
+    private final CircuitBreakerInterceptor circuitBreaker;
+    private final RateLimitInterceptor rateLimiter;
+    private final RequestScheduler requestScheduler;
+    private final RequestCoalescer<Movies> pageRequests;
+    private final RequestCoalescer<Movie> detailsRequests;
+
+    private MovieDbNetwork(Context context, NetworkConfig config) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.maxRequests);
+        dispatcher.setMaxRequestsPerHost(config.maxRequestsPerHost);
+        circuitBreaker = new CircuitBreakerInterceptor(
+                config.circuitFailureThreshold,
+                config.circuitOpenMillis,
+                TimeUnit.MILLISECONDS);
+        rateLimiter = new RateLimitInterceptor(
+                config.rateLimitCapacity,
+                config.rateLimitRequests,
+                config.rateLimitPeriodMillis,
+                config.rateLimitMaxWaitMillis,
+                TimeUnit.MILLISECONDS);
+        // Stats are counted before stale fallbacks so a stale-if-error answer
+        // shows up as a cache hit. The breaker sees a request only once all its
+        // retries failed, and its rejections fall back to the cache. The rate
+        // limiter takes a token per attempt, so retries spend the budget and a 429
+        // holds the next attempt until Retry-After. It runs above the HTTP cache
+        // and outside the connection pool
+        okHttpClient = new OkHttpClient.Builder()
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectionPool(new ConnectionPool(
+                        config.maxIdleConnections,
+                        config.keepAliveMillis,
+                        TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(config.connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(config.readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .cache(new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR),
+                        config.httpCacheSize))
+                .addInterceptor(httpCacheStats)
+                .addInterceptor(new StaleIfErrorInterceptor())
+                .addInterceptor(circuitBreaker)
+                .addInterceptor(new RetryInterceptor(
+                        config.maxAttempts,
+                        config.retryBaseDelayMillis,
+                        config.retryMaxDelayMillis))
+                .addInterceptor(rateLimiter)
+                .addNetworkInterceptor(new CacheControlInterceptor())
+                .build();
+        // Build Retrofit Object with Base URL and create the Service Object. The
+        // models are parsed by streaming adapters instead of reflection
+        movieDbService = new Retrofit.Builder()
+                .baseUrl(MOVIE_DB_BASE_URL)
+                .addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+                        .registerTypeAdapterFactory(new MovieJsonAdapters())
+                        .create()))
+                .client(okHttpClient)
+                .build()
+                .create(MovieDbService.class);
+        requestScheduler = new RequestScheduler(config.maxScheduledRequests);
+        pageRequests = new RequestCoalescer<>(requestScheduler);
+        detailsRequests = new RequestCoalescer<>(requestScheduler);
+    }
+
+    /**
+     * Replaces the default tunables. Has no effect once the stack was created.
+     */
+    public static synchronized void init(NetworkConfig networkConfig) {
+        config = networkConfig;
+    }
+
+    public static synchronized MovieDbNetwork getInstance(Context context) {
+        if (INSTANCE == null) {
+            INSTANCE = new MovieDbNetwork(context.getApplicationContext(), config);
+        }
+        return INSTANCE;
+    }
+
+    public MovieDbService getMovieDbService() {
+        return movieDbService;
+    }
+
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * @return in-flight table for sorted pages, keyed "sort:page"
+     */
+    public RequestCoalescer<Movies> getPageRequests() {
+        return pageRequests;
+    }
+
+    /**
+     * @return in-flight table for movie details, keyed "details:id"
+     */
+    public RequestCoalescer<Movie> getDetailsRequests() {
+        return detailsRequests;
+    }
+
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    public CircuitBreakerInterceptor.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * @return the limiter holding this API key's request budget, for its metrics
+     */
+    public RateLimitInterceptor getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return hit/miss counters of the HTTP cache for this process
+     */
+    public HttpCacheStats getHttpCacheStats() {
+        return httpCacheStats;
+    }
+}
@@ -5,16 +5,21 @@ import com.example.android.popularmovies.data.Movie;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
 
+/**
+ * The priority argument is the name of the call's RequestScheduler.Priority, which
+ * lets RateLimitInterceptor keep budget for foreground calls.
+ */
 public interface MovieDbService {
 
     @GET("{sort_by}")
-    Call<Movies> getSortedMovies(@Path("sort_by") String sortBy, @Query("api_key") String apiKey, @Query("page") String page);
+    Call<Movies> getSortedMovies(@Path("sort_by") String sortBy, @Query("api_key") String apiKey, @Query("page") String page, @Header(RateLimitInterceptor.PRIORITY_HEADER) String priority);
 
     // TODO: 6/24/2019 Check movie id
     @GET("{movie_id}")
-    Call<Movie> getDetails(@Path("movie_id") String movieId, @Query("api_key") String apiKey, @Query("append_to_response") String dataType);
+    Call<Movie> getDetails(@Path("movie_id") String movieId, @Query("api_key") String apiKey, @Query("append_to_response") String dataType, @Header(RateLimitInterceptor.PRIORITY_HEADER) String priority);
 
 }
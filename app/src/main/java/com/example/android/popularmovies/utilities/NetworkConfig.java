@@ -0,0 +1,160 @@
+package com.example.android.popularmovies.utilities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tunables of the shared TMDb network stack. Pass a custom instance to
+ * MovieDbNetwork.init before the first request to change them.
+ */
+public final class NetworkConfig {
+    public static final NetworkConfig DEFAULT = new Builder().build();
+
+    final int maxRequests;
+    final int maxRequestsPerHost;
+    final int maxIdleConnections;
+    final long keepAliveMillis;
+    final long connectTimeoutMillis;
+    final long readTimeoutMillis;
+    final long httpCacheSize;
+    final int maxAttempts;
+    final long retryBaseDelayMillis;
+    final long retryMaxDelayMillis;
+    final int circuitFailureThreshold;
+    final long circuitOpenMillis;
+    final int maxScheduledRequests;
+    final int rateLimitCapacity;
+    final int rateLimitRequests;
+    final long rateLimitPeriodMillis;
+    final long rateLimitMaxWaitMillis;
+
+    private NetworkConfig(Builder builder) {
+        maxRequests = builder.maxRequests;
+        maxRequestsPerHost = builder.maxRequestsPerHost;
+        maxIdleConnections = builder.maxIdleConnections;
+        keepAliveMillis = builder.keepAliveMillis;
+        connectTimeoutMillis = builder.connectTimeoutMillis;
+        readTimeoutMillis = builder.readTimeoutMillis;
+        httpCacheSize = builder.httpCacheSize;
+        maxAttempts = builder.maxAttempts;
+        retryBaseDelayMillis = builder.retryBaseDelayMillis;
+        retryMaxDelayMillis = builder.retryMaxDelayMillis;
+        circuitFailureThreshold = builder.circuitFailureThreshold;
+        circuitOpenMillis = builder.circuitOpenMillis;
+        maxScheduledRequests = builder.maxScheduledRequests;
+        rateLimitCapacity = builder.rateLimitCapacity;
+        rateLimitRequests = builder.rateLimitRequests;
+        rateLimitPeriodMillis = builder.rateLimitPeriodMillis;
+        rateLimitMaxWaitMillis = builder.rateLimitMaxWaitMillis;
+    }
+
+    public static class Builder {
+        // Everything goes to one host, over HTTP/2 these share a single connection
+        private int maxRequests = 16;
+        private int maxRequestsPerHost = 6;
+        private int maxIdleConnections = 2;
+        private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+        private long connectTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+        private long readTimeoutMillis = TimeUnit.SECONDS.toMillis(15);
+        private long httpCacheSize = 10 * 1024 * 1024;
+        private int maxAttempts = 3;
+        private long retryBaseDelayMillis = 500;
+        private long retryMaxDelayMillis = TimeUnit.SECONDS.toMillis(4);
+        private int circuitFailureThreshold = 5;
+        private long circuitOpenMillis = TimeUnit.SECONDS.toMillis(30);
+        // Below maxRequestsPerHost so the priority queue, not the dispatcher, decides
+        private int maxScheduledRequests = 4;
+        // TMDb allows about 40 requests per 10 seconds per API key
+        private int rateLimitCapacity = 40;
+        private int rateLimitRequests = 40;
+        private long rateLimitPeriodMillis = TimeUnit.SECONDS.toMillis(10);
+        private long rateLimitMaxWaitMillis = TimeUnit.SECONDS.toMillis(5);
+
+        /**
+         * @param maxRequests requests executed at the same time by the dispatcher
+         */
+        public Builder maxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsPerHost requests to api.themoviedb.org executed at the same time
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * @param maxIdleConnections idle connections kept open in the pool
+         * @param keepAlive how long an idle connection is kept
+         */
+        public Builder keepAlive(int maxIdleConnections, long keepAlive, TimeUnit unit) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMillis = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        public Builder timeouts(long connectTimeout, long readTimeout, TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(connectTimeout);
+            this.readTimeoutMillis = unit.toMillis(readTimeout);
+            return this;
+        }
+
+        /**
+         * @param httpCacheSize size of the HTTP disk cache in bytes
+         */
+        public Builder httpCacheSize(long httpCacheSize) {
+            this.httpCacheSize = httpCacheSize;
+            return this;
+        }
+
+        /**
+         * @param maxAttempts attempts for a GET, including the first one
+         * @param baseDelay upper bound of the first backoff, doubled on every retry
+         * @param maxDelay upper bound of any backoff
+         */
+        public Builder retry(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit) {
+            this.maxAttempts = maxAttempts;
+            this.retryBaseDelayMillis = unit.toMillis(baseDelay);
+            this.retryMaxDelayMillis = unit.toMillis(maxDelay);
+            return this;
+        }
+
+        /**
+         * @param failureThreshold consecutive failures that stop requests to TMDb
+         * @param openDuration how long requests stay stopped before a trial request
+         */
+        public Builder circuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+            this.circuitFailureThreshold = failureThreshold;
+            this.circuitOpenMillis = unit.toMillis(openDuration);
+            return this;
+        }
+
+        /**
+         * @param maxScheduledRequests calls the RequestScheduler runs at the same time
+         */
+        public Builder maxScheduledRequests(int maxScheduledRequests) {
+            this.maxScheduledRequests = maxScheduledRequests;
+            return this;
+        }
+
+        /**
+         * @param capacity requests that can be sent to TMDb in a burst
+         * @param requests requests allowed per period once the burst is spent
+         * @param maxWait longest a request waits for its turn before failing
+         */
+        public Builder rateLimit(int capacity, int requests, long period, long maxWait,
+                                 TimeUnit unit) {
+            this.rateLimitCapacity = capacity;
+            this.rateLimitRequests = requests;
+            this.rateLimitPeriodMillis = unit.toMillis(period);
+            this.rateLimitMaxWaitMillis = unit.toMillis(maxWait);
+            return this;
+        }
+
+        public NetworkConfig build() {
+            return new NetworkConfig(this);
+        }
+    }
+}
@@ -1,50 +1,26 @@
 package com.example.android.popularmovies.utilities;
 
-import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.DiffUtil;
 
 import com.example.android.popularmovies.data.Movie;
 
-import java.util.List;
+import java.util.Objects;
 
-public class PosterDiffCallback extends DiffUtil.Callback {
-
-    private List<Movie> oldMovies;
-    private List<Movie> newMovies;
-
-    public PosterDiffCallback(List<Movie> oldMovies, List<Movie> newMovies) {
-        this.oldMovies = oldMovies;
-        this.newMovies = newMovies;
-    }
-
-
-    @Override
-    public int getOldListSize() {
-        return oldMovies.size();
-    }
+/**
+ * Compares two movies of the grid. Used by the paged adapter on a background thread.
+ */
+public class PosterDiffCallback extends DiffUtil.ItemCallback<Movie> {
 
     @Override
-    public int getNewListSize() {
-        return newMovies.size();
-    }
-
-    @Override
-    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-        return oldMovies.get(oldItemPosition).getId() == newMovies.get(newItemPosition).getId();
-    }
-
-    @Override
-    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-        Movie oldMovie = oldMovies.get(oldItemPosition);
-        Movie newMovie = newMovies.get(newItemPosition);
-
-        return oldMovie.getTitle()
-                .equals(newMovie.getTitle());
+    public boolean areItemsTheSame(@NonNull Movie oldMovie, @NonNull Movie newMovie) {
+        return oldMovie.getId() == newMovie.getId();
     }
 
-    @Nullable
+    // Only what a grid cell shows
     @Override
-    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-        return super.getChangePayload(oldItemPosition, newItemPosition);
+    public boolean areContentsTheSame(@NonNull Movie oldMovie, @NonNull Movie newMovie) {
+        return Objects.equals(oldMovie.getTitle(), newMovie.getTitle())
+                && Objects.equals(oldMovie.getPosterPath(), newMovie.getPosterPath());
     }
 }
@@ -0,0 +1,70 @@
+package com.example.android.popularmovies.utilities;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Asks for more items before the user reaches the end of the grid. The distance it
+ * looks ahead is a few rows while the list is slow and grows with the scroll speed,
+ * so a fling requests the pages it is going to land on instead of stalling at the end
+ * of the loaded data. The paged grid's BoundaryCallback only asks for the next page
+ * once the last stored row is loaded, this starts the downloads earlier.
+ */
+public abstract class PrefetchScrollListener extends RecyclerView.OnScrollListener {
+    // Rows below the last visible one that are always kept loaded
+    private static final int MIN_ROWS_AHEAD = 5;
+    // How far ahead in time the current scroll speed is projected
+    private static final long LOOKAHEAD_MILLIS = 1500;
+    // Weight of the newest sample in the smoothed speed
+    private static final float SMOOTHING = 0.5f;
+
+    private final GridLayoutManager layoutManager;
+    private long lastSampleTime;
+    private int lastSamplePosition;
+    // Smoothed forward scroll speed in items per millisecond
+    private float itemsPerMilli;
+
+    public PrefetchScrollListener(GridLayoutManager layoutManager) {
+        this.layoutManager = layoutManager;
+    }
+
+    // This happens many times a second during a scroll, so keep it cheap
+    @Override
+    public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+        int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+        long now = SystemClock.uptimeMillis();
+        if (lastSampleTime > 0 && now > lastSampleTime) {
+            float speed = Math.max(0, lastVisiblePosition - lastSamplePosition)
+                    / (float) (now - lastSampleTime);
+            itemsPerMilli = SMOOTHING * speed + (1 - SMOOTHING) * itemsPerMilli;
+        }
+        lastSampleTime = now;
+        lastSamplePosition = lastVisiblePosition;
+
+        int itemsAhead = layoutManager.getSpanCount() * MIN_ROWS_AHEAD
+                + Math.round(itemsPerMilli * LOOKAHEAD_MILLIS);
+        int wantedItemCount = lastVisiblePosition + 1 + itemsAhead;
+        if (wantedItemCount > layoutManager.getItemCount()) {
+            onPrefetch(wantedItemCount);
+        }
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView view, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            // Start the next gesture from rest
+            itemsPerMilli = 0;
+            lastSampleTime = 0;
+        }
+    }
+
+    /**
+     * Called while the grid is short of items. Implementations must ignore items
+     * that are already loaded or requested, this is called many times per scroll.
+     * @param itemCount number of items the grid should have
+     */
+    public abstract void onPrefetch(int itemCount);
+}
@@ -0,0 +1,240 @@
+package com.example.android.popularmovies.utilities;
+
+import com.example.android.popularmovies.utilities.RequestScheduler.Priority;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Token bucket shared by every request sent to TMDb with our API key. The bucket
+ * holds up to capacity tokens and refills at a steady rate. It sits below the
+ * retries and above the HTTP cache and the connection pool: every attempt takes one
+ * token, and an attempt waiting for one holds no pooled connection. An attempt that
+ * finds the bucket empty waits for a token. It fails with RateLimitedException when
+ * the wait would exceed maxWait.
+ * <p>
+ * Requests only the cache may answer take no token. An attempt that would wait is
+ * first offered to the cache, and one the cache answered after all gets its token
+ * back.
+ * <p>
+ * Speculative requests (see PRIORITY_HEADER) leave a reserve of capacity / 4
+ * tokens. They also wait while a foreground request is waiting, so prefetching and
+ * sync can't starve what the user is looking at. A 429 or 503 with Retry-After
+ * empties the bucket and holds every request until the server's deadline.
+ */
+public class RateLimitInterceptor implements Interceptor {
+    /**
+     * Name of the RequestScheduler.Priority of a call, removed before it is sent.
+     * Requests without it, or with a name that isn't a Priority, count as foreground.
+     */
+    public static final String PRIORITY_HEADER = "X-Request-Priority";
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final long DEFAULT_RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // OkHttp answers an only-if-cached request it can't satisfy with this code
+    private static final int GATEWAY_TIMEOUT = 504;
+    // A fresh cached copy, or nothing
+    private static final CacheControl FRESH_FROM_CACHE =
+            new CacheControl.Builder().onlyIfCached().build();
+
+    private final double capacity;
+    private final double backgroundReserve;
+    private final double tokensPerNano;
+    private final long maxWaitNanos;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long blockedUntil = refilledAt;
+    private int foregroundWaiting;
+    private int throttledCount;
+    private int rejectedCount;
+
+    /**
+     * @param capacity requests that can be sent in a burst
+     * @param requests requests allowed per period once the burst is spent
+     * @param maxWait longest a request waits for a token before failing
+     */
+    public RateLimitInterceptor(int capacity, int requests, long per, long maxWait,
+                                TimeUnit unit) {
+        this.capacity = capacity;
+        this.backgroundReserve = capacity / 4;
+        this.tokensPerNano = (double) requests / unit.toNanos(per);
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.tokens = capacity;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean background = false;
+        String priority = request.header(PRIORITY_HEADER);
+        if (priority != null) {
+            background = isSpeculative(priority);
+            request = request.newBuilder().removeHeader(PRIORITY_HEADER).build();
+        }
+        if (request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+        if (!tryAcquire(background)) {
+            Response cached = proceedFromCache(chain, request);
+            if (cached != null) {
+                return cached;
+            }
+            acquire(background, chain);
+        }
+        Response response = chain.proceed(request);
+        if (response.networkResponse() == null) {
+            release();
+        }
+        String retryAfter = response.header(RETRY_AFTER);
+        if (response.code() == TOO_MANY_REQUESTS
+                || (response.code() == SERVICE_UNAVAILABLE && retryAfter != null)) {
+            onServerThrottled(retryAfter);
+        }
+        return response;
+    }
+
+    private static Response proceedFromCache(Chain chain, Request request)
+            throws IOException {
+        if (request.cacheControl().noCache()) {
+            return null;
+        }
+        Response cached = chain.proceed(request.newBuilder()
+                .cacheControl(FRESH_FROM_CACHE)
+                .build());
+        if (cached.code() == GATEWAY_TIMEOUT) {
+            cached.close();
+            return null;
+        }
+        return cached;
+    }
+
+    private static boolean isSpeculative(String priority) {
+        for (Priority value : Priority.values()) {
+            if (value.name().equals(priority)) {
+                return value.isSpeculative();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return tokens currently in the bucket, between 0 and capacity
+     */
+    public synchronized double getTokens() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    /**
+     * @return requests that had to wait for a token, including the rejected ones
+     */
+    public synchronized int getThrottledCount() {
+        return throttledCount;
+    }
+
+    /**
+     * @return requests that failed because the wait exceeded maxWait
+     */
+    public synchronized int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    // Takes a token if one is free without waiting
+    private synchronized boolean tryAcquire(boolean background) {
+        long now = System.nanoTime();
+        refill(now);
+        double floor = background ? backgroundReserve : 0;
+        boolean yield = background && foregroundWaiting > 0;
+        if (now >= blockedUntil && !yield && tokens >= floor + 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    private void acquire(boolean background, Chain chain) throws IOException {
+        boolean waited = false;
+        try {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    if (tryAcquire(background)) {
+                        return;
+                    }
+                    long now = System.nanoTime();
+                    double floor = background ? backgroundReserve : 0;
+                    if (!waited) {
+                        waited = true;
+                        throttledCount++;
+                        if (!background) {
+                            foregroundWaiting++;
+                        }
+                    }
+                    long refillNanos = (long) Math.ceil(Math.max(0, floor + 1 - tokens)
+                            / tokensPerNano);
+                    waitNanos = Math.max(blockedUntil - now, refillNanos);
+                    if (waitNanos > maxWaitNanos || chain.call().isCanceled()) {
+                        rejectedCount++;
+                        throw new RateLimitedException();
+                    }
+                }
+                // Another request may take the token first, so check again on waking
+                sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        } finally {
+            if (waited && !background) {
+                synchronized (this) {
+                    foregroundWaiting--;
+                }
+            }
+        }
+    }
+
+    private void refill(long now) {
+        if (now <= refilledAt) {
+            return;
+        }
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+    private synchronized void onServerThrottled(String retryAfter) {
+        long now = System.nanoTime();
+        blockedUntil = Math.max(blockedUntil, now + retryAfterNanos(retryAfter));
+        // Empty, and nothing refills before the server's deadline
+        tokens = 0;
+        refilledAt = blockedUntil;
+    }
+
+    private static long retryAfterNanos(String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                // TMDb sends seconds, an HTTP date falls back to the default
+            }
+        }
+        return DEFAULT_RETRY_AFTER_NANOS;
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a TMDb request token");
+        }
+    }
+}
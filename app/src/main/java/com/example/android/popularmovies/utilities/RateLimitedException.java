@@ -0,0 +1,14 @@
+package com.example.android.popularmovies.utilities;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown instead of calling TMDb when the API key's request budget won't allow the
+ * request within the limiter's maximum wait. It is a timeout, so OkHttp doesn't
+ * retry it on another route.
+ */
+public class RateLimitedException extends InterruptedIOException {
+    public RateLimitedException() {
+        super("TMDb request budget exhausted");
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.android.popularmovies.utilities;
+
+import androidx.annotation.NonNull;
+
+import com.example.android.popularmovies.utilities.RequestScheduler.Priority;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Table of requests currently on the network, keyed by endpoint and argument
+ * (e.g. "details:550" or "popular:3"). A caller asking for a key that is already
+ * in flight doesn't start a new Call, it waits for the running one and gets the
+ * same parsed body. The key is released as soon as the Call completes, so later
+ * callers start a fresh request.
+ * Every caller names an owner. When the last owner waiting for a key goes away
+ * (cancelAll), the Call is cancelled.
+ * @param <T> type of the parsed response body
+ */
+public class RequestCoalescer<T> {
+
+    /**
+     * Creates the Call for a key. Only invoked when no request for the key is running.
+     */
+    public interface CallFactory<T> {
+        Call<T> create();
+    }
+
+    private static final class Waiter<T> {
+        final Object owner;
+        final Callback<T> callback;
+
+        Waiter(Object owner, Callback<T> callback) {
+            this.owner = owner;
+            this.callback = callback;
+        }
+    }
+
+    private static final class Flight<T> {
+        final List<Waiter<T>> waiters = new ArrayList<>();
+        RequestScheduler.Job<T> job;
+    }
+
+    private final RequestScheduler scheduler;
+    private final Map<String, Flight<T>> inFlight = new HashMap<>();
+
+    public RequestCoalescer(RequestScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Schedules the Call for key, or joins the one already running for it. Joining
+     * with a higher priority promotes the shared Call.
+     * @param key identifies the endpoint and its argument
+     * @param priority priority of this caller
+     * @param owner the caller, see cancelAll
+     * @param factory creates the Call when the key isn't in flight yet
+     * @param callback receives the shared result
+     */
+    public void enqueue(String key, Priority priority, Object owner,
+                        CallFactory<T> factory, Callback<T> callback) {
+        synchronized (inFlight) {
+            Flight<T> flight = inFlight.get(key);
+            if (flight != null) {
+                flight.waiters.add(new Waiter<>(owner, callback));
+                scheduler.promote(flight.job, priority);
+                return;
+            }
+            flight = new Flight<>();
+            flight.waiters.add(new Waiter<>(owner, callback));
+            inFlight.put(key, flight);
+            flight.job = scheduler.enqueue(priority, factory.create(), new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    for (Waiter<T> waiter : release(key)) {
+                        waiter.callback.onResponse(call, response);
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    for (Waiter<T> waiter : release(key)) {
+                        waiter.callback.onFailure(call, t);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops every callback of owner. Calls nobody else waits for are cancelled.
+     */
+    public void cancelAll(Object owner) {
+        synchronized (inFlight) {
+            Iterator<Flight<T>> flights = inFlight.values().iterator();
+            while (flights.hasNext()) {
+                Flight<T> flight = flights.next();
+                Iterator<Waiter<T>> waiters = flight.waiters.iterator();
+                while (waiters.hasNext()) {
+                    if (waiters.next().owner == owner) {
+                        waiters.remove();
+                    }
+                }
+                if (flight.waiters.isEmpty()) {
+                    flights.remove();
+                    scheduler.cancel(flight.job);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if a request for key is running
+     */
+    public boolean isInFlight(String key) {
+        synchronized (inFlight) {
+            return inFlight.containsKey(key);
+        }
+    }
+
+    private List<Waiter<T>> release(String key) {
+        synchronized (inFlight) {
+            Flight<T> flight = inFlight.remove(key);
+            return flight != null ? flight.waiters : new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.android.popularmovies.utilities;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Orders TMDb calls by priority before they reach the OkHttp dispatcher. At most
+ * maxRunning calls are on the network, the rest wait in priority order (FIFO within
+ * a priority). When every slot is busy and a call arrives that outranks a running
+ * speculative call (prefetch, hydration or background sync), the speculative call is cancelled
+ * and queued again, so a detail screen never waits behind pages nobody looks at yet.
+ */
+public class RequestScheduler {
+
+    public enum Priority {
+        // Declared from highest to lowest
+        DETAIL,
+        VISIBLE_PAGE,
+        PREFETCH,
+        // Details of posters the user is looking at, fetched before a tap
+        HYDRATION,
+        BACKGROUND_SYNC;
+
+        boolean isSpeculative() {
+            return this == PREFETCH || this == HYDRATION || this == BACKGROUND_SYNC;
+        }
+    }
+
+    /**
+     * Handle of a scheduled call, used to cancel or promote it.
+     */
+    public static final class Job<T> implements Comparable<Job<?>> {
+        private enum State { QUEUED, RUNNING, CANCELED, DONE }
+
+        private final long sequence;
+        private final Callback<T> callback;
+        private Priority priority;
+        private Call<T> call;
+        private State state = State.QUEUED;
+
+        private Job(long sequence, Priority priority, Call<T> call, Callback<T> callback) {
+            this.sequence = sequence;
+            this.priority = priority;
+            this.call = call;
+            this.callback = callback;
+        }
+
+        public synchronized Priority getPriority() {
+            return priority;
+        }
+
+        @Override
+        public int compareTo(@NonNull Job<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final int maxRunning;
+    private final PriorityQueue<Job<?>> queue = new PriorityQueue<>();
+    private final List<Job<?>> running = new ArrayList<>();
+    private long nextSequence;
+    private long preemptedCount;
+
+    public RequestScheduler(int maxRunning) {
+        this.maxRunning = maxRunning;
+    }
+
+    /**
+     * Queues a call and starts it as soon as a slot is free. The callback is not
+     * invoked if the job is cancelled.
+     */
+    public <T> Job<T> enqueue(Priority priority, Call<T> call, Callback<T> callback) {
+        Job<T> job;
+        List<Job<?>> toStart = new ArrayList<>();
+        List<Call<?>> toCancel = new ArrayList<>();
+        synchronized (this) {
+            job = new Job<>(nextSequence++, priority, call, callback);
+            queue.add(job);
+            schedule(toStart, toCancel);
+        }
+        dispatch(toStart, toCancel);
+        return job;
+    }
+
+    /**
+     * Raises the priority of a job, e.g. when the user opens a movie whose details
+     * were being prefetched. Lowering is ignored.
+     */
+    public void promote(Job<?> job, Priority priority) {
+        List<Job<?>> toStart = new ArrayList<>();
+        List<Call<?>> toCancel = new ArrayList<>();
+        synchronized (this) {
+            if (priority.compareTo(job.priority) >= 0) {
+                return;
+            }
+            if (job.state == Job.State.QUEUED) {
+                queue.remove(job);
+                job.priority = priority;
+                queue.add(job);
+                schedule(toStart, toCancel);
+            } else {
+                job.priority = priority;
+            }
+        }
+        dispatch(toStart, toCancel);
+    }
+
+    /**
+     * Removes a job from the queue or cancels its running call. Its callback is
+     * not invoked.
+     */
+    public void cancel(Job<?> job) {
+        List<Job<?>> toStart = new ArrayList<>();
+        List<Call<?>> toCancel = new ArrayList<>();
+        synchronized (this) {
+            if (job.state == Job.State.QUEUED) {
+                queue.remove(job);
+            } else if (job.state == Job.State.RUNNING) {
+                running.remove(job);
+                toCancel.add(job.call);
+            } else {
+                return;
+            }
+            job.state = Job.State.CANCELED;
+            schedule(toStart, toCancel);
+        }
+        dispatch(toStart, toCancel);
+    }
+
+    /**
+     * @return speculative calls that were interrupted to make room for others
+     */
+    public synchronized long getPreemptedCount() {
+        return preemptedCount;
+    }
+
+    /**
+     * @return calls waiting for a slot
+     */
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    // Moves queued jobs into free slots, pre-empting speculative work if needed
+    private void schedule(List<Job<?>> toStart, List<Call<?>> toCancel) {
+        while (!queue.isEmpty()) {
+            Job<?> next = queue.peek();
+            if (running.size() >= maxRunning) {
+                Job<?> victim = findVictim(next.priority);
+                if (victim == null) {
+                    return;
+                }
+                running.remove(victim);
+                toCancel.add(victim.call);
+                requeue(victim);
+                preemptedCount++;
+            }
+            queue.poll();
+            next.state = Job.State.RUNNING;
+            running.add(next);
+            toStart.add(next);
+        }
+    }
+
+    // Lowest ranked running speculative job that is outranked by priority
+    private Job<?> findVictim(Priority priority) {
+        Job<?> victim = null;
+        for (Job<?> job : running) {
+            if (job.priority.isSpeculative() && job.priority.compareTo(priority) > 0
+                    && (victim == null || job.compareTo(victim) > 0)) {
+                victim = job;
+            }
+        }
+        return victim;
+    }
+
+    // A cancelled Call can't be enqueued again, a clone of it can
+    private <T> void requeue(Job<T> job) {
+        job.call = job.call.clone();
+        job.state = Job.State.QUEUED;
+        queue.add(job);
+    }
+
+    // Called outside the lock, OkHttp may call back on another thread right away
+    private void dispatch(List<Job<?>> toStart, List<Call<?>> toCancel) {
+        for (Call<?> call : toCancel) {
+            call.cancel();
+        }
+        for (Job<?> job : toStart) {
+            start(job);
+        }
+    }
+
+    private <T> void start(Job<T> job) {
+        Call<T> call;
+        synchronized (this) {
+            call = job.call;
+        }
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> c, @NonNull Response<T> response) {
+                if (finish(job, call)) {
+                    job.callback.onResponse(c, response);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> c, @NonNull Throwable t) {
+                if (finish(job, call)) {
+                    job.callback.onFailure(c, t);
+                }
+            }
+        });
+    }
+
+    /**
+     * Frees the slot of a finished call.
+     * @return false if the call was cancelled or pre-empted and must not be delivered
+     */
+    private boolean finish(Job<?> job, Call<?> call) {
+        List<Job<?>> toStart = new ArrayList<>();
+        List<Call<?>> toCancel = new ArrayList<>();
+        synchronized (this) {
+            if (job.call != call || job.state != Job.State.RUNNING) {
+                return false;
+            }
+            job.state = Job.State.DONE;
+            running.remove(job);
+            schedule(toStart, toCancel);
+        }
+        dispatch(toStart, toCancel);
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.android.popularmovies.utilities;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Retries idempotent requests that failed with an I/O error or a transient server
+ * error or a 429. The delay before attempt n is picked at random between 0 and
+ * min(maxDelay, baseDelay * 2^(n-1)) ("full jitter"), so clients that failed
+ * together don't come back together. A 429 retry also waits in RateLimitInterceptor
+ * until TMDb's Retry-After has passed.
+ */
+public class RetryInterceptor implements Interceptor {
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Random random = new Random();
+
+    /**
+     * @param maxAttempts attempts including the first one
+     * @param baseDelayMillis upper bound of the first delay
+     * @param maxDelayMillis upper bound of any delay
+     */
+    public RetryInterceptor(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isIdempotent(request) || request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Response response = chain.proceed(request);
+                if (!isTransient(response.code()) || attempt >= maxAttempts) {
+                    return response;
+                }
+                response.close();
+            } catch (CircuitOpenException | RateLimitedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || chain.call().isCanceled()) {
+                    throw e;
+                }
+            }
+            sleep(backoffMillis(attempt));
+        }
+    }
+
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return (long) (random.nextDouble() * ceiling);
+    }
+
+    static boolean isIdempotent(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    static boolean isTransient(int code) {
+        return code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+}
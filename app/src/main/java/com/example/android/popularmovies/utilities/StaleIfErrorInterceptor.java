@@ -0,0 +1,63 @@
+package com.example.android.popularmovies.utilities;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Falls back to an expired cache entry when TMDb can't be reached or answers with
+ * a server error, as long as the entry isn't older than STALE_IF_ERROR.
+ * OkHttp has no support for the stale-if-error directive, so it is done here.
+ */
+public class StaleIfErrorInterceptor implements Interceptor {
+    static final int STALE_IF_ERROR = (int) TimeUnit.DAYS.toSeconds(7);
+    // OkHttp answers an only-if-cached request it can't satisfy with this code
+    private static final int GATEWAY_TIMEOUT = 504;
+    private static final int SERVER_ERROR = 500;
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            Response stale = proceedFromCache(chain, request);
+            if (stale == null) {
+                throw e;
+            }
+            return stale;
+        }
+        if (response.code() < SERVER_ERROR) {
+            return response;
+        }
+        Response stale = proceedFromCache(chain, request);
+        if (stale == null) {
+            return response;
+        }
+        response.close();
+        return stale;
+    }
+
+    private static Response proceedFromCache(Chain chain, Request request) throws IOException {
+        Request cacheOnly = request.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(STALE_IF_ERROR, TimeUnit.SECONDS)
+                        .build())
+                .build();
+        Response cached = chain.proceed(cacheOnly);
+        if (cached.code() == GATEWAY_TIMEOUT) {
+            cached.close();
+            return null;
+        }
+        return cached;
+    }
+}
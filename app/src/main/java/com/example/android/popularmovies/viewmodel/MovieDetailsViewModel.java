@@ -18,25 +18,69 @@
 
 package com.example.android.popularmovies.viewmodel;
 
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.ViewModel;
 
 import com.example.android.popularmovies.data.Movie;
 import com.example.android.popularmovies.repo.MovieRepository;
+import com.example.android.popularmovies.repo.NetworkState;
 
-public class MovieDetailsViewModel extends ViewModel {
+public class MovieDetailsViewModel extends AndroidViewModel {
     private MovieRepository repo;
     private int movieId;
+    private LiveData<Movie> movieDetails;
+    private LiveData<Boolean> favorite;
 
-    public MovieDetailsViewModel() {
-        this.repo = new MovieRepository();
+    public MovieDetailsViewModel(@NonNull Application application) {
+        super(application);
+        this.repo = new MovieRepository(application);
     }
 
     public void setMovieId(int movieId) {
+        if (this.movieId != movieId) {
+            movieDetails = null;
+            favorite = null;
+        }
         this.movieId = movieId;
     }
 
+    /**
+     * Details are requested once per movie, observing again after a configuration
+     * change reuses the same LiveData.
+     */
     public LiveData<Movie> getMovieDetails() {
-        return repo.getMovieDetailsFromServer(String.valueOf(movieId));
+        if (movieDetails == null) {
+            movieDetails = repo.getMovieDetailsFromServer(String.valueOf(movieId));
+        }
+        return movieDetails;
+    }
+
+    public LiveData<Boolean> isFavorite() {
+        if (favorite == null) {
+            favorite = repo.isFavorite(movieId);
+        }
+        return favorite;
+    }
+
+    /**
+     * Adds the movie to the favorites or removes it, favorites stay stored offline.
+     */
+    public void toggleFavorite() {
+        Boolean isFavorite = isFavorite().getValue();
+        repo.setFavorite(movieId, isFavorite == null || !isFavorite);
+    }
+
+    public LiveData<NetworkState> getNetworkState() {
+        return repo.getNetworkState();
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        // Nobody will observe the details anymore
+        repo.clear();
     }
 }
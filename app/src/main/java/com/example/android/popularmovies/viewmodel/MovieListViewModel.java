@@ -1,29 +1,169 @@
 package com.example.android.popularmovies.viewmodel;
 
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagedList;
 
 import com.example.android.popularmovies.data.Movie;
+import com.example.android.popularmovies.data.MovieDatabase;
+import com.example.android.popularmovies.data.MovieSearchDao;
 import com.example.android.popularmovies.repo.MovieRepository;
+import com.example.android.popularmovies.repo.NetworkState;
+import com.example.android.popularmovies.repo.SortOrder;
+import com.example.android.popularmovies.utilities.MovieDbNetwork;
+import com.example.android.popularmovies.utilities.RateLimitInterceptor;
+
+import java.util.Locale;
+import java.util.Objects;
 
-import java.util.List;
+public class MovieListViewModel extends AndroidViewModel {
+    // Typing pauses this long before the search runs
+    private static final long SEARCH_DEBOUNCE_MS = 300;
 
-public class MovieListViewModel extends ViewModel {
-    private static final int PAGE_NUMBER_INCREMENT = 1;
     private MovieRepository repo;
-    private int pageNumber = 1;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Search text the list shows results for, empty for the selected feed
+    private final MutableLiveData<String> searchText = new MutableLiveData<>();
+    // Whether the favorites are shown instead of the selected feed
+    private final MutableLiveData<Boolean> showFavorites = new MutableLiveData<>();
+    private final LiveData<PagedList<Movie>> movies;
+    private String pendingSearchText = "";
+    private final Runnable applySearch = this::applySearch;
+
+    public MovieListViewModel(@NonNull Application application) {
+        super(application);
+        this.repo = new MovieRepository(application);
+        searchText.setValue("");
+        showFavorites.setValue(false);
+        MediatorLiveData<Boolean> listChanges = new MediatorLiveData<>();
+        listChanges.addSource(searchText, text -> listChanges.setValue(true));
+        listChanges.addSource(showFavorites, show -> listChanges.setValue(true));
+        movies = Transformations.switchMap(listChanges, changed -> selectedList());
+    }
+
+    private LiveData<PagedList<Movie>> selectedList() {
+        String text = searchText.getValue();
+        if (isSearch(text)) {
+            return repo.searchMovies(text);
+        }
+        return isShowingFavorites() ? repo.getFavoriteMovies() : repo.getMoviesFromServer();
+    }
+
+    /**
+     * @return the selected feed or the favorites, or the search results while a search
+     * text is set
+     */
+    public LiveData<PagedList<Movie>> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Searches the stored movies once the user stops typing for SEARCH_DEBOUNCE_MS.
+     * Text without a letter or digit shows the selected feed again.
+     */
+    public void setSearchText(String text) {
+        pendingSearchText = text == null ? "" : text;
+        handler.removeCallbacks(applySearch);
+        handler.postDelayed(applySearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    public String getSearchText() {
+        return pendingSearchText;
+    }
+
+    private void applySearch() {
+        String text = pendingSearchText;
+        // "star" and "star " run the same query, keep the results on screen
+        if (!Objects.equals(MovieSearchDao.toMatchQuery(text),
+                MovieSearchDao.toMatchQuery(searchText.getValue()))) {
+            searchText.setValue(text);
+        }
+    }
+
+    private static boolean isSearch(String text) {
+        return MovieSearchDao.toMatchQuery(text) != null;
+    }
+
+    /**
+     * Switches the list to another sort order, instantly if it was loaded before.
+     * Leaves the favorites.
+     */
+    public void setSortOrder(SortOrder order) {
+        repo.setSortOrder(order);
+        // Setting the same value would run the search again
+        if (isShowingFavorites()) {
+            showFavorites.setValue(false);
+        }
+    }
+
+    /**
+     * Shows the favorites in place of the selected feed, until a sort order is picked.
+     */
+    public void showFavorites() {
+        if (!isShowingFavorites()) {
+            showFavorites.setValue(true);
+        }
+    }
+
+    public boolean isShowingFavorites() {
+        return Boolean.TRUE.equals(showFavorites.getValue());
+    }
+
+    public LiveData<SortOrder> getSortOrder() {
+        return repo.getSortOrder();
+    }
+
+    /**
+     * Makes sure the pages holding the first itemCount movies are loaded.
+     */
+    public void loadMovies(int itemCount) {
+        // Search results and favorites are all stored already
+        if (isSearch(searchText.getValue()) || isShowingFavorites()) {
+            return;
+        }
+        repo.prefetchMovies(itemCount);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        handler.removeCallbacks(applySearch);
+        repo.clear();
+        // End of a scroll session, log how much the HTTP cache saved, how close
+        // we came to TMDb's rate limit, how well writes were batched and how long
+        // queries waited for a thread
+        MovieDbNetwork network = MovieDbNetwork.getInstance(getApplication());
+        Log.d("MovieListViewModel", "HTTP cache: " + network.getHttpCacheStats());
+        RateLimitInterceptor rateLimiter = network.getRateLimiter();
+        Log.d("MovieListViewModel", String.format(Locale.US,
+                "Rate limit: %.1f tokens left, %d throttled, %d rejected",
+                rateLimiter.getTokens(),
+                rateLimiter.getThrottledCount(),
+                rateLimiter.getRejectedCount()));
+        MovieDatabase database = MovieDatabase.getDatabase(getApplication());
+        Log.d("MovieListViewModel", "Database writes: " + database.getWriteCoalescer());
+        Log.d("MovieListViewModel", "Database threads: " + database.getQueryMetrics()
+                + "; " + database.getWriteMetrics());
+    }
 
-    public MovieListViewModel() {
-        this.repo = new MovieRepository();
-        repo.setPageNumber(pageNumber);
+    public void onPosterShown(int movieId) {
+        repo.onPosterShown(movieId);
     }
 
-    public LiveData<List<Movie>> getMovies() {
-        return repo.getMoviesFromServer();
+    public void onPosterHidden(int movieId) {
+        repo.onPosterHidden(movieId);
     }
 
-    public void loadMovies() {
-        pageNumber += PAGE_NUMBER_INCREMENT;
-        repo.loadMoviesFromServer(pageNumber);
+    public LiveData<NetworkState> getNetworkState() {
+        return repo.getNetworkState();
     }
 }
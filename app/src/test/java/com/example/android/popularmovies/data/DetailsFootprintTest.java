@@ -0,0 +1,139 @@
+package com.example.android.popularmovies.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Heap taken by the reviews and trailers of a details payload. Sizes follow the
+ * layout of a 64-bit VM with compressed references, like ART's: a 12 byte header,
+ * 4 bytes per reference and objects aligned to 8 bytes.
+ */
+public class DetailsFootprintTest {
+    private static final int HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(new MovieJsonAdapters())
+            .create();
+
+    @Test
+    public void valueTypesHoldOnlyTheirFields() {
+        assertEquals(24, shallowBytes(Review.class));
+        assertEquals(24, shallowBytes(Trailer.class));
+        for (Class<?> type : new Class<?>[]{Review.class, Trailer.class,
+                Movies.Reviews.class, Movies.Videos.class}) {
+            // No hidden reference to an enclosing instance
+            assertTrue(type.getEnclosingClass() == null
+                    || Modifier.isStatic(type.getModifiers()));
+        }
+    }
+
+    @Test
+    public void hundredsOfReviewsCostLittleMoreThanTheirText() {
+        Movie movie = gson.fromJson(TmdbJson.movieDetails(550, 500, 50), Movie.class);
+        List<Review> reviews = movie.getReviews().getResults();
+        List<Trailer> trailers = movie.getVideos().getResults();
+
+        assertEquals(500, reviews.size());
+        // Every fifth video is on Vimeo
+        assertEquals(40, trailers.size());
+
+        long textBytes = 0;
+        for (Review review : reviews) {
+            textBytes += stringBytes(review.getAuthor()) + stringBytes(review.getContent());
+        }
+        long reviewBytes = deepBytes(movie.getReviews());
+        long perReviewOverhead = (reviewBytes - textBytes) / reviews.size();
+        // The Review object and its slot in the list
+        assertTrue("overhead per review " + perReviewOverhead, perReviewOverhead <= 28);
+        long perTrailer = deepBytes(movie.getVideos()) / trailers.size();
+        assertTrue("bytes per trailer " + perTrailer, perTrailer <= 140);
+    }
+
+    private static long deepBytes(Object root) {
+        return deepBytes(root, new IdentityHashMap<>());
+    }
+
+    private static long deepBytes(Object object, Map<Object, Boolean> seen) {
+        if (object == null || seen.put(object, Boolean.TRUE) != null) {
+            return 0;
+        }
+        if (object instanceof String) {
+            return stringBytes((String) object);
+        }
+        if (object instanceof List) {
+            // java.util isn't open to reflection, an ArrayList trimmed to its size
+            List<?> list = (List<?>) object;
+            long bytes = align(HEADER_BYTES + 2 * 4 + REFERENCE_BYTES)
+                    + align(ARRAY_HEADER_BYTES + (long) list.size() * REFERENCE_BYTES);
+            for (Object item : list) {
+                bytes += deepBytes(item, seen);
+            }
+            return bytes;
+        }
+        long bytes = shallowBytes(object.getClass());
+        for (Class<?> type = object.getClass(); type != Object.class;
+             type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    bytes += deepBytes(field.get(object), seen);
+                } catch (IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long shallowBytes(Class<?> type) {
+        long bytes = HEADER_BYTES;
+        for (Class<?> t = type; t != Object.class; t = t.getSuperclass()) {
+            for (Field field : t.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    bytes += fieldBytes(field.getType());
+                }
+            }
+        }
+        return align(bytes);
+    }
+
+    private static int fieldBytes(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_BYTES;
+    }
+
+    // A String and its array, one byte per character for ASCII text
+    private static long stringBytes(String text) {
+        if (text == null) {
+            return 0;
+        }
+        return align(HEADER_BYTES + 3 * 4) + align(ARRAY_HEADER_BYTES + text.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
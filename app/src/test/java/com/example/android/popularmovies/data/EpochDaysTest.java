@@ -0,0 +1,42 @@
+package com.example.android.popularmovies.data;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Release dates must convert like java.time, which the device doesn't have before
+ * API 26.
+ */
+public class EpochDaysTest {
+
+    @Test
+    public void matchesJavaTime() {
+        for (LocalDate date = LocalDate.of(1890, 1, 1); date.getYear() < 2040;
+             date = date.plusDays(17)) {
+            int epochDay = EpochDays.parse(date.toString());
+            assertEquals(date.toEpochDay(), epochDay);
+            assertEquals(date.toString(), EpochDays.toIsoString(epochDay));
+        }
+    }
+
+    @Test
+    public void invalidDatesHaveNone() {
+        assertEquals(EpochDays.NONE, EpochDays.parse(null));
+        assertEquals(EpochDays.NONE, EpochDays.parse(""));
+        assertEquals(EpochDays.NONE, EpochDays.parse("1999"));
+        assertEquals(EpochDays.NONE, EpochDays.parse("1999-02-29"));
+        assertEquals(EpochDays.NONE, EpochDays.parse("1999-13-01"));
+        assertEquals(LocalDate.of(2000, 2, 29).toEpochDay(), EpochDays.parse("2000-02-29"));
+        assertNull(EpochDays.toIsoString(EpochDays.NONE));
+        assertEquals("", EpochDays.toDisplayString(EpochDays.NONE));
+    }
+
+    @Test
+    public void displayStringSpellsMonth() {
+        assertEquals("October 15, 1999", EpochDays.toDisplayString(EpochDays.parse("1999-10-15")));
+        assertEquals("January 1, 2020", EpochDays.toDisplayString(EpochDays.parse("2020-01-01")));
+    }
+}
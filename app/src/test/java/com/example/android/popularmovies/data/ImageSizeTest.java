@@ -0,0 +1,28 @@
+package com.example.android.popularmovies.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The smallest TMDb size covering the view is downloaded.
+ */
+public class ImageSizeTest {
+
+    @Test
+    public void posterSizeCoversWidth() {
+        assertEquals("w92", ImageSize.forPoster(50));
+        assertEquals("w185", ImageSize.forPoster(185));
+        assertEquals("w342", ImageSize.forPoster(186));
+        // A 190dp cell on an xxhdpi phone
+        assertEquals("w780", ImageSize.forPoster(570));
+        assertEquals("original", ImageSize.forPoster(781));
+    }
+
+    @Test
+    public void backdropSizeCoversWidth() {
+        assertEquals("w300", ImageSize.forBackdrop(0));
+        assertEquals("w1280", ImageSize.forBackdrop(1080));
+        assertEquals("original", ImageSize.forBackdrop(1600));
+    }
+}
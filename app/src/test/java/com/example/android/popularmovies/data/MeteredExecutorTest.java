@@ -0,0 +1,47 @@
+package com.example.android.popularmovies.data;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the queue metrics of a pool whose only thread is kept busy.
+ */
+public class MeteredExecutorTest {
+
+    @Test
+    public void countsTasksWaitingForBusyThread() throws Exception {
+        MeteredExecutor executor = new MeteredExecutor("test", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        // The first task holds the only thread before the others are queued
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        long queuedAt = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            executor.execute(done::countDown);
+        }
+        assertEquals(3, executor.getQueueDepth());
+        long heldNanos = System.nanoTime() - queuedAt;
+        release.countDown();
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(3, executor.getMaxQueueDepth());
+        assertEquals(4, executor.getTaskCount());
+        // The first queued task waited at least until the thread was released
+        assertTrue(executor.getLongestWaitMillis() >= heldNanos / 1e6);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.android.popularmovies.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * The streaming adapters must produce the same models as Gson's reflective path.
+ */
+public class MovieJsonAdaptersTest {
+    private final Gson reflective = new Gson();
+    private final Gson streaming = new GsonBuilder()
+            .registerTypeAdapterFactory(new MovieJsonAdapters())
+            .create();
+
+    @Test
+    public void pageMatchesReflectivePath() {
+        String json = TmdbJson.moviePage(3, 20);
+        List<Movie> expected = reflective.fromJson(json, Movies.class).getMovies();
+        List<Movie> actual = streaming.fromJson(json, Movies.class).getMovies();
+
+        assertEquals(20, actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameMovie(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void detailsMatchReflectivePath() {
+        String json = TmdbJson.movieDetails(550, 12, 6);
+        Movie expected = reflective.fromJson(json, Movie.class);
+        Movie actual = streaming.fromJson(json, Movie.class);
+
+        assertSameMovie(expected, actual);
+        List<Review> expectedReviews = expected.getReviews().getResults();
+        List<Review> actualReviews = actual.getReviews().getResults();
+        assertEquals(expectedReviews.size(), actualReviews.size());
+        for (int i = 0; i < expectedReviews.size(); i++) {
+            assertEquals(expectedReviews.get(i).getAuthor(), actualReviews.get(i).getAuthor());
+            assertEquals(expectedReviews.get(i).getContent(), actualReviews.get(i).getContent());
+        }
+        // The reflective path keeps the videos on other sites, which aren't in the model
+        JsonArray videos = new JsonParser().parse(json).getAsJsonObject()
+                .getAsJsonObject("videos").getAsJsonArray("results");
+        List<JsonObject> expectedVideos = new ArrayList<>();
+        for (JsonElement video : videos) {
+            if (video.getAsJsonObject().get("site").getAsString().equals("YouTube")) {
+                expectedVideos.add(video.getAsJsonObject());
+            }
+        }
+        List<Trailer> actualVideos = actual.getVideos().getResults();
+        assertTrue(expectedVideos.size() < videos.size());
+        assertEquals(expectedVideos.size(), actualVideos.size());
+        for (int i = 0; i < expectedVideos.size(); i++) {
+            assertEquals(expectedVideos.get(i).get("key").getAsString(),
+                    actualVideos.get(i).getKey());
+            assertEquals(expectedVideos.get(i).get("name").getAsString(),
+                    actualVideos.get(i).getName());
+            assertEquals(expectedVideos.get(i).get("type").getAsString(),
+                    actualVideos.get(i).getType());
+        }
+    }
+
+    @Test
+    public void repeatedValuesAreInterned() {
+        Movie movie = streaming.fromJson(TmdbJson.movieDetails(550, 0, 4), Movie.class);
+        List<Trailer> videos = movie.getVideos().getResults();
+
+        assertSame(videos.get(0).getType(), videos.get(2).getType());
+        assertSame(videos.get(1).getType(), videos.get(3).getType());
+    }
+
+    @Test
+    public void nullsAreKept() {
+        Movie movie = streaming.fromJson(
+                "{\"id\":1,\"poster_path\":null,\"title\":\"T\",\"reviews\":null}", Movie.class);
+
+        assertEquals(1, movie.getId());
+        assertNull(movie.getPosterPath());
+        assertEquals(EpochDays.NONE, movie.getReleaseDate());
+        assertTrue(movie.getReviews().getResults().isEmpty());
+        assertNull(movie.getVideos());
+    }
+
+    @Test
+    public void writeThenReadKeepsFields() {
+        Movie movie = streaming.fromJson(TmdbJson.movieDetails(550, 2, 2), Movie.class);
+        Movie copy = streaming.fromJson(streaming.toJson(movie), Movie.class);
+
+        assertSameMovie(movie, copy);
+        assertEquals(2, copy.getReviews().getResults().size());
+        assertEquals(2, copy.getVideos().getResults().size());
+    }
+
+    private static void assertSameMovie(Movie expected, Movie actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getPosterPath(), actual.getPosterPath());
+        assertEquals(expected.getBackdropPath(), actual.getBackdropPath());
+        assertEquals(expected.getVoteAverage(), actual.getVoteAverage(), 0f);
+        assertEquals(expected.getOverview(), actual.getOverview());
+        assertEquals(expected.getReleaseDate(), actual.getReleaseDate());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.android.popularmovies.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Compares parse time and allocation of the streaming adapters against Gson's
+ * reflective path on a 20-movie page and a details payload, both for a warm Gson
+ * and for the first parse of a new Gson, which includes building the adapters.
+ * Not a unit test, run main() from the IDE. Allocated bytes come from HotSpot's
+ * per-thread counter. HotSpot's reflection is much cheaper than ART's, so the gap
+ * on a device is larger than on the desktop.
+ */
+public final class MovieJsonBenchmark {
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final int MEASURED_ROUNDS = 10_000;
+    private static final int COLD_ROUNDS = 500;
+
+    private MovieJsonBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Gson reflective = new Gson();
+        Gson streaming = createStreamingGson();
+        String page = TmdbJson.moviePage(1, 20);
+        String details = TmdbJson.movieDetails(550, 40, 20);
+
+        runCold("cold page, reflective", false, page);
+        runCold("cold page, streaming", true, page);
+        run("page, reflective", reflective, page, Movies.class);
+        run("page, streaming", streaming, page, Movies.class);
+        run("details, reflective", reflective, details, Movie.class);
+        run("details, streaming", streaming, details, Movie.class);
+    }
+
+    private static Gson createStreamingGson() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new MovieJsonAdapters())
+                .create();
+    }
+
+    private static void runCold(String label, boolean streaming, String json) {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < COLD_ROUNDS; i++) {
+            Gson gson = streaming ? createStreamingGson() : new Gson();
+            gson.fromJson(json, Movies.class);
+        }
+        print(label, System.nanoTime() - start, allocatedBytes() - allocatedBefore, COLD_ROUNDS);
+    }
+
+    private static void run(String label, Gson gson, String json, Class<?> type) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            gson.fromJson(json, type);
+        }
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            gson.fromJson(json, type);
+        }
+        print(label, System.nanoTime() - start, allocatedBytes() - allocatedBefore, MEASURED_ROUNDS);
+    }
+
+    private static void print(String label, long elapsedNanos, long allocated, int rounds) {
+        System.out.println(String.format(Locale.ENGLISH, "%-24s %8.1f us/op %10d B/op",
+                label,
+                elapsedNanos / 1000.0 / rounds,
+                allocated / rounds));
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
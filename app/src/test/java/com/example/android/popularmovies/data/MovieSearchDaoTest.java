@@ -0,0 +1,32 @@
+package com.example.android.popularmovies.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that typed text becomes an FTS query SQLite can't choke on.
+ */
+public class MovieSearchDaoTest {
+
+    @Test
+    public void everyWordIsMatchedAsPrefix() {
+        assertEquals("star* wa*", MovieSearchDao.toMatchQuery("Star Wa"));
+        assertEquals("amélie*", MovieSearchDao.toMatchQuery("  Amélie "));
+        assertEquals("2001*", MovieSearchDao.toMatchQuery("2001"));
+    }
+
+    @Test
+    public void querySyntaxIsDropped() {
+        assertEquals("star* or* trek*", MovieSearchDao.toMatchQuery("\"star\" OR trek-"));
+        assertEquals("wall* e*", MovieSearchDao.toMatchQuery("WALL·E"));
+        assertEquals("title* alien*", MovieSearchDao.toMatchQuery("title:alien*"));
+    }
+
+    @Test
+    public void textWithoutWordsIsNoSearch() {
+        assertNull(MovieSearchDao.toMatchQuery(null));
+        assertNull(MovieSearchDao.toMatchQuery(""));
+        assertNull(MovieSearchDao.toMatchQuery(" *-\" "));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.android.popularmovies.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which downloaded movies MovieDao.insertPage writes again.
+ */
+public class MovieTest {
+
+    @Test
+    public void equalColumnsAreTheSameRow() {
+        assertTrue(movie().hasSameColumns(movie()));
+    }
+
+    @Test
+    public void anyShownColumnChangesTheRow() {
+        Movie title = movie();
+        title.setTitle("Fight Club (Director's Cut)");
+        Movie poster = movie();
+        poster.setPosterPath("/new.jpg");
+        Movie rating = movie();
+        rating.setVoteAverage(8.5f);
+        Movie date = movie();
+        date.setReleaseDate(EpochDays.parse("1999-10-16"));
+        Movie overview = movie();
+        overview.setOverview(null);
+
+        for (Movie changed : new Movie[]{title, poster, rating, date, overview}) {
+            assertFalse(movie().hasSameColumns(changed));
+        }
+    }
+
+    static Movie movie() {
+        Movie movie = new Movie();
+        movie.setId(550);
+        movie.setTitle("Fight Club");
+        movie.setPosterPath("/poster.jpg");
+        movie.setBackdropPath("/backdrop.jpg");
+        movie.setVoteAverage(8.4f);
+        movie.setOverview("A ticking-time-bomb insomniac...");
+        movie.setReleaseDate(EpochDays.parse("1999-10-15"));
+        return movie;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.popularmovies.data;
+
+import java.util.Locale;
+
+/**
+ * Builds TMDb-shaped JSON payloads, including the fields the app never reads.
+ */
+final class TmdbJson {
+
+    private TmdbJson() {
+    }
+
+    static String moviePage(int page, int size) {
+        StringBuilder json = new StringBuilder("{\"page\":").append(page).append(",\"results\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendMovie(json, (page - 1) * size + i + 1);
+            json.append('}');
+        }
+        return json.append("],\"total_results\":10000,\"total_pages\":500}").toString();
+    }
+
+    static String movieDetails(int id, int reviews, int videos) {
+        StringBuilder json = new StringBuilder();
+        appendMovie(json, id);
+        json.append(",\"budget\":63000000,\"homepage\":null,\"imdb_id\":\"tt0137523\"")
+                .append(",\"genres\":[{\"id\":18,\"name\":\"Drama\"}]")
+                .append(",\"production_companies\":[{\"id\":508,\"logo_path\":null,")
+                .append("\"name\":\"Regency Enterprises\",\"origin_country\":\"US\"}]")
+                .append(",\"runtime\":139,\"status\":\"Released\",\"tagline\":\"Mischief.\"");
+        json.append(",\"reviews\":{\"page\":1,\"results\":[");
+        for (int i = 0; i < reviews; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ENGLISH,
+                    "{\"author\":\"author%d\",\"content\":\"Review number %d of a movie, "
+                            + "long enough to look like a real review.\",\"id\":\"r%d\","
+                            + "\"url\":\"https://www.themoviedb.org/review/r%d\"}",
+                    i, i, i, i));
+        }
+        json.append("],\"total_pages\":1,\"total_results\":").append(reviews).append('}');
+        json.append(",\"videos\":{\"results\":[");
+        for (int i = 0; i < videos; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ENGLISH,
+                    "{\"id\":\"v%d\",\"iso_639_1\":\"en\",\"iso_3166_1\":\"US\",\"key\":\"key%d\","
+                            + "\"name\":\"Trailer %d\",\"site\":\"%s\",\"size\":1080,"
+                            + "\"type\":\"%s\"}",
+                    i, i, i, i % 5 == 4 ? "Vimeo" : "YouTube", i % 2 == 0 ? "Trailer" : "Teaser"));
+        }
+        return json.append("]}}").toString();
+    }
+
+    // Leaves the movie object open so details can append to it
+    private static void appendMovie(StringBuilder json, int id) {
+        json.append(String.format(Locale.ENGLISH,
+                "{\"adult\":false,\"backdrop_path\":\"/backdrop%d.jpg\",\"genre_ids\":[18,53,35],"
+                        + "\"id\":%d,\"original_language\":\"en\",\"original_title\":\"Movie %d\","
+                        + "\"overview\":\"A ticking-time-bomb insomniac and a slippery soap salesman "
+                        + "channel primal male aggression into a shocking new form of therapy.\","
+                        + "\"popularity\":%d.215,\"poster_path\":\"/poster%d.jpg\","
+                        + "\"release_date\":\"1999-10-%02d\",\"title\":\"Movie %d\",\"video\":false,"
+                        + "\"vote_average\":%d.4,\"vote_count\":%d",
+                id, id, id, 100 + id, id, id % 28 + 1, id, id % 10, 1000 + id));
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.android.popularmovies.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that writes arriving together share a transaction, against a fake database
+ * that only keeps the writes of committed transactions.
+ */
+public class WriteCoalescerTest {
+    private ScheduledExecutorService writer;
+    // Writes of committed transactions, and the size of each transaction
+    private final List<Integer> committed = new CopyOnWriteArrayList<>();
+    private final List<Integer> transactionSizes = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<List<Integer>> transaction = new ThreadLocal<>();
+
+    private final WriteCoalescer.TransactionRunner database = body -> {
+        List<Integer> writes = new ArrayList<>();
+        transaction.set(writes);
+        try {
+            body.run();
+        } finally {
+            transaction.remove();
+        }
+        committed.addAll(writes);
+        transactionSizes.add(writes.size());
+    };
+
+    @Before
+    public void setUp() {
+        writer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        writer.shutdownNow();
+    }
+
+    private Runnable write(int value) {
+        return () -> transaction.get().add(value);
+    }
+
+    @Test
+    public void writesWithinWindowShareOneTransaction() throws Exception {
+        WriteCoalescer writes = new WriteCoalescer(database, writer, 32,
+                200, TimeUnit.MILLISECONDS);
+        CountDownLatch done = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            writes.write(write(i), error -> done.countDown());
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), committed);
+        assertEquals(1, transactionSizes.size());
+        assertEquals(1, writes.getBatchCount());
+        assertEquals(5, writes.getWriteCount());
+        assertEquals(5, writes.getLargestBatch());
+        assertEquals(5.0, writes.getAverageBatchSize(), 0.0);
+    }
+
+    @Test
+    public void fullBatchCommitsWithoutWaitingForWindow() throws Exception {
+        WriteCoalescer writes = new WriteCoalescer(database, writer, 4,
+                1, TimeUnit.HOURS);
+        CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            writes.write(write(i), error -> done.countDown());
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(8, committed.size());
+        assertEquals(Arrays.asList(4, 4), transactionSizes);
+    }
+
+    @Test
+    public void writesLeftOverFromFullBatchWaitForWindow() throws Exception {
+        WriteCoalescer writes = new WriteCoalescer(database, writer, 4,
+                300, TimeUnit.MILLISECONDS);
+        // Keep the writer busy so all six writes are pending before the first flush
+        CountDownLatch busy = new CountDownLatch(1);
+        writer.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch done = new CountDownLatch(6);
+        List<Long> writtenAt = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            writes.write(write(i), error -> {
+                writtenAt.add(System.nanoTime());
+                done.countDown();
+            });
+        }
+        long released = System.nanoTime();
+        busy.countDown();
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(4, 2), transactionSizes);
+        // The two writes past the full batch started a window of their own
+        assertTrue(writtenAt.get(5) - released >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    public void batchesCommitOnWriterNotTimer() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        WriteCoalescer writes = new WriteCoalescer(database, timer,
+                task -> writer.execute(() -> {
+                    threads.add(Thread.currentThread().getName());
+                    task.run();
+                }),
+                32, 50, TimeUnit.MILLISECONDS);
+        CountDownLatch done = new CountDownLatch(2);
+        writes.write(write(1), error -> done.countDown());
+        writes.write(write(2), error -> done.countDown());
+
+        try {
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+        } finally {
+            timer.shutdownNow();
+        }
+        assertEquals(Arrays.asList(1, 2), committed);
+        assertEquals(1, threads.size());
+    }
+
+    @Test
+    public void failingWriteOnlyLosesItself() throws Exception {
+        WriteCoalescer writes = new WriteCoalescer(database, writer, 32,
+                200, TimeUnit.MILLISECONDS);
+        CountDownLatch done = new CountDownLatch(3);
+        List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+        WriteCoalescer.OnWritten onWritten = error -> {
+            if (error != null) {
+                errors.add(error);
+            }
+            done.countDown();
+        };
+        writes.write(write(1), onWritten);
+        writes.write(() -> {
+            throw new IllegalStateException("constraint failed");
+        }, onWritten);
+        writes.write(write(3), onWritten);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 3), committed);
+        assertEquals(1, errors.size());
+        assertEquals("constraint failed", errors.get(0).getMessage());
+        assertEquals(1, writes.getFailedCount());
+        assertEquals(2, writes.getWriteCount());
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.android.popularmovies.repo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which posters get their details fetched, against a scheduler whose clock the
+ * test moves by hand and a fetcher that only records the movies.
+ */
+public class DetailHydratorTest {
+    private final FakeScheduler scheduler = new FakeScheduler();
+    private final Set<Integer> fresh = new HashSet<>();
+    private final List<Integer> fetched = new ArrayList<>();
+    private final List<Runnable> pending = new ArrayList<>();
+    private final DetailHydrator hydrator = new DetailHydrator(fresh::contains,
+            (movieId, onDone) -> {
+                fetched.add(movieId);
+                pending.add(onDone);
+            },
+            scheduler);
+
+    @Test
+    public void posterIsFetchedAfterDwellTime() {
+        hydrator.onPosterShown(550);
+        scheduler.advance(DetailHydrator.DWELL_MILLIS - 1);
+        assertEquals(Collections.emptyList(), fetched);
+
+        scheduler.advance(1);
+        assertEquals(Collections.singletonList(550), fetched);
+    }
+
+    @Test
+    public void posterHiddenBeforeDwellTimeIsNotFetched() {
+        hydrator.onPosterShown(550);
+        scheduler.advance(DetailHydrator.DWELL_MILLIS / 2);
+        hydrator.onPosterHidden(550);
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+
+        assertEquals(Collections.emptyList(), fetched);
+    }
+
+    @Test
+    public void posterIsFetchedOnceWhileTimedQueuedOrInFlight() {
+        hydrator.onPosterShown(550);
+        scheduler.advance(DetailHydrator.DWELL_MILLIS / 2);
+        // Scrolled back and forth within the dwell time
+        hydrator.onPosterShown(550);
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+        hydrator.onPosterShown(550);
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+
+        assertEquals(Collections.singletonList(550), fetched);
+    }
+
+    @Test
+    public void freshDetailsAreSkipped() {
+        fresh.add(550);
+        hydrator.onPosterShown(550);
+        hydrator.onPosterShown(13);
+        // Stored by the detail screen while 13 waited for its dwell time
+        fresh.add(13);
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+
+        assertEquals(Collections.emptyList(), fetched);
+    }
+
+    @Test
+    public void onlyMaxInFlightRequestsRunAtOnce() {
+        for (int movieId = 1; movieId <= 4; movieId++) {
+            hydrator.onPosterShown(movieId);
+        }
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+        assertEquals(Arrays.asList(1, 2), fetched);
+
+        pending.get(0).run();
+        assertEquals(Arrays.asList(1, 2, 3), fetched);
+        pending.get(1).run();
+        assertEquals(Arrays.asList(1, 2, 3, 4), fetched);
+    }
+
+    @Test
+    public void fullQueueDropsOldestPoster() {
+        int shown = DetailHydrator.MAX_IN_FLIGHT + DetailHydrator.MAX_QUEUED + 1;
+        for (int movieId = 1; movieId <= shown; movieId++) {
+            hydrator.onPosterShown(movieId);
+        }
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).run();
+        }
+
+        // 3 was the oldest queued poster when the last one joined
+        assertFalse(fetched.contains(3));
+        assertEquals(shown - 1, fetched.size());
+    }
+
+    @Test
+    public void hiddenPosterLeavesQueueButRunningRequestFinishes() {
+        for (int movieId = 1; movieId <= 3; movieId++) {
+            hydrator.onPosterShown(movieId);
+        }
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+        hydrator.onPosterHidden(1);
+        hydrator.onPosterHidden(3);
+        pending.get(0).run();
+        pending.get(1).run();
+
+        assertEquals(Arrays.asList(1, 2), fetched);
+    }
+
+    @Test
+    public void clearDropsTimersAndQueue() {
+        for (int movieId = 1; movieId <= 3; movieId++) {
+            hydrator.onPosterShown(movieId);
+        }
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+        hydrator.onPosterShown(4);
+        hydrator.clear();
+        scheduler.advance(DetailHydrator.DWELL_MILLIS);
+        pending.get(0).run();
+
+        assertEquals(Arrays.asList(1, 2), fetched);
+        assertEquals(0, scheduler.tasks.size());
+    }
+
+    private static class FakeScheduler implements DetailHydrator.Scheduler {
+        // Task to the time it runs at, in the order posted
+        final Map<Runnable, Long> tasks = new LinkedHashMap<>();
+        long now;
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            tasks.put(task, now + delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            tasks.remove(task);
+        }
+
+        void advance(long millis) {
+            now += millis;
+            for (Runnable task : new ArrayList<>(tasks.keySet())) {
+                Long runAt = tasks.get(task);
+                if (runAt != null && runAt <= now) {
+                    tasks.remove(task);
+                    task.run();
+                }
+            }
+        }
+    }
+}
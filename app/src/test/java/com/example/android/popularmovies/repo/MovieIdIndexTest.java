@@ -0,0 +1,53 @@
+package com.example.android.popularmovies.repo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * A movie ranked twice is listed once, at its first position.
+ */
+public class MovieIdIndexTest {
+
+    @Test
+    public void repeatedIdsAreListedOnce() {
+        // 42 moved up from page 1 to page 2 between the downloads
+        MovieIdIndex index = new MovieIdIndex(Arrays.asList(7, 42, 3, 9, 42, 5));
+
+        assertEquals(5, index.size());
+        assertEquals(0, index.positionAt(0));
+        assertEquals(3, index.positionAt(3));
+        assertEquals(5, index.positionAt(4));
+        assertEquals(1, index.positionOf(42));
+        assertEquals(MovieIdIndex.NO_POSITION, index.positionOf(11));
+    }
+
+    @Test
+    public void longFeedKeepsEveryPosition() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Ids that share low bits, and every tenth one repeated
+            ids.add(i % 10 == 9 ? (i - 1) * 1024 + 1 : i * 1024 + 1);
+        }
+        MovieIdIndex index = new MovieIdIndex(ids);
+
+        assertEquals(4500, index.size());
+        for (int i = 0; i < ids.size(); i++) {
+            int position = index.positionOf(ids.get(i));
+            assertEquals(i % 10 == 9 ? i - 1 : i, position);
+        }
+        assertEquals(MovieIdIndex.NO_POSITION, index.positionOf(2));
+    }
+
+    @Test
+    public void emptyFeed() {
+        MovieIdIndex index = new MovieIdIndex(new ArrayList<>());
+
+        assertEquals(0, index.size());
+        assertEquals(MovieIdIndex.NO_POSITION, index.positionOf(1));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.android.popularmovies.repo;
+
+import com.example.android.popularmovies.utilities.CircuitOpenException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which network states MovieRepository posts again.
+ */
+public class NetworkStateTest {
+
+    @Test
+    public void repeatedStatusWithoutErrorIsTheSame() {
+        assertTrue(NetworkState.LOADING.isSameAs(NetworkState.LOADING));
+        assertFalse(NetworkState.LOADING.isSameAs(NetworkState.LOADED));
+        assertFalse(NetworkState.STALE.isSameAs(null));
+    }
+
+    @Test
+    public void failureIsTheSameOnlyIfItFailedTheSameWay() {
+        NetworkState offline = NetworkState.failed(new IOException("No network connection"));
+
+        assertTrue(offline.isSameAs(
+                NetworkState.failed(new IOException("No network connection"))));
+        assertFalse(offline.isSameAs(
+                NetworkState.failed(new IOException("HTTP 429 Too Many Requests"))));
+        assertFalse(offline.isSameAs(NetworkState.failed(new CircuitOpenException())));
+        assertFalse(offline.isSameAs(NetworkState.STALE));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.android.popularmovies.repo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which pages a feed requests as the grid scrolls, against a loader that only
+ * records the pages and a clock the test moves by hand.
+ */
+public class PageWindowTest {
+    private final List<Integer> loaded = new ArrayList<>();
+    private long now = 1000;
+
+    private PageWindow window(int maxInFlight, int maxPagesAhead) {
+        return new PageWindow(maxInFlight, maxPagesAhead, loaded::add, () -> now);
+    }
+
+    @Test
+    public void requestsStayWithinPagesAheadOfContiguousPage() {
+        PageWindow pages = window(10, 2);
+
+        pages.requestUpTo(5);
+        assertEquals(Arrays.asList(1, 2), loaded);
+
+        pages.onPageAvailable(1);
+        pages.onPageDone(1, true);
+        pages.requestUpTo(5);
+        assertEquals(Arrays.asList(1, 2, 3), loaded);
+    }
+
+    @Test
+    public void pagesBeyondMaxInFlightWaitForASlotLowestFirst() {
+        PageWindow pages = window(2, 10);
+
+        pages.requestUpTo(4);
+        assertEquals(Arrays.asList(1, 2), loaded);
+
+        pages.onPageAvailable(2);
+        pages.onPageDone(2, true);
+        assertEquals(Arrays.asList(1, 2, 3), loaded);
+        pages.onPageAvailable(1);
+        pages.onPageDone(1, true);
+        assertEquals(Arrays.asList(1, 2, 3, 4), loaded);
+        // Requested pages aren't requested twice
+        pages.requestUpTo(4);
+        assertEquals(Arrays.asList(1, 2, 3, 4), loaded);
+    }
+
+    @Test
+    public void onlyContiguousPagesAreDisplayable() {
+        PageWindow pages = window(3, 3);
+        pages.requestUpTo(3);
+
+        assertFalse(pages.onPageAvailable(3));
+        assertFalse(pages.onPageAvailable(2));
+        assertEquals(0, pages.getContiguousPage());
+        assertTrue(pages.onPageAvailable(1));
+        assertEquals(3, pages.getContiguousPage());
+    }
+
+    @Test
+    public void failedPageCoolsDownBeforeItIsRequestedAgain() {
+        PageWindow pages = window(2, 2);
+        pages.requestUpTo(1);
+        pages.onPageDone(1, false);
+        loaded.clear();
+
+        // Scrolling while offline
+        for (int i = 0; i < 10; i++) {
+            pages.requestUpTo(1);
+        }
+        assertEquals(Collections.emptyList(), loaded);
+
+        now += 2000;
+        pages.requestUpTo(1);
+        assertEquals(Collections.singletonList(1), loaded);
+    }
+
+    @Test
+    public void cooldownDoublesWithEveryFailureInARow() {
+        PageWindow pages = window(2, 2);
+        pages.requestUpTo(1);
+        pages.onPageDone(1, false);
+        now += 2000;
+        pages.requestUpTo(1);
+        pages.onPageDone(1, false);
+        loaded.clear();
+
+        now += 2000;
+        pages.requestUpTo(1);
+        assertEquals(Collections.emptyList(), loaded);
+        now += 2000;
+        pages.requestUpTo(1);
+        assertEquals(Collections.singletonList(1), loaded);
+    }
+
+    @Test
+    public void loadedPageResetsItsFailures() {
+        PageWindow pages = window(2, 2);
+        pages.requestUpTo(1);
+        pages.onPageDone(1, false);
+        now += 2000;
+        pages.requestUpTo(1);
+        pages.onPageAvailable(1);
+        pages.onPageDone(1, true);
+        pages.onPageEvicted(1);
+        loaded.clear();
+
+        pages.requestUpTo(1);
+        assertEquals(Collections.singletonList(1), loaded);
+    }
+
+    @Test
+    public void evictedPageIsRequestedAgain() {
+        PageWindow pages = window(2, 2);
+        pages.requestUpTo(2);
+        pages.onPageAvailable(1);
+        pages.onPageDone(1, true);
+        pages.onPageAvailable(2);
+        pages.onPageDone(2, true);
+        assertEquals(2, pages.getContiguousPage());
+
+        pages.onPageEvicted(2);
+        assertEquals(1, pages.getContiguousPage());
+        loaded.clear();
+        pages.requestUpTo(2);
+        assertEquals(Collections.singletonList(2), loaded);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.android.popularmovies.utilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the token bucket against a local server standing in for TMDb.
+ */
+public class RateLimitInterceptorTest {
+    @Rule
+    public final TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void requestsWaitForATokenOnceTheBurstIsSpent() throws Exception {
+        // 2 tokens, then one every 100 ms
+        RateLimitInterceptor limiter =
+                new RateLimitInterceptor(2, 10, 1000, 1000, TimeUnit.MILLISECONDS);
+        OkHttpClient client = newClient(limiter);
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setBody("ok"));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            execute(client, get(null));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("third request didn't wait: " + elapsedMillis, elapsedMillis >= 80);
+        assertEquals(1, limiter.getThrottledCount());
+        assertEquals(0, limiter.getRejectedCount());
+        assertTrue(limiter.getTokens() < 1);
+    }
+
+    @Test
+    public void speculativeRequestsLeaveAReserveForForeground() throws Exception {
+        // 4 tokens with a reserve of 1, practically no refill
+        RateLimitInterceptor limiter =
+                new RateLimitInterceptor(4, 1, TimeUnit.HOURS.toMillis(1), 50,
+                        TimeUnit.MILLISECONDS);
+        OkHttpClient client = newClient(limiter);
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody("ok"));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            execute(client, get(RequestScheduler.Priority.PREFETCH));
+        }
+        try {
+            execute(client, get(RequestScheduler.Priority.BACKGROUND_SYNC));
+            fail("speculative request took the reserved token");
+        } catch (RateLimitedException expected) {
+        }
+        execute(client, get(RequestScheduler.Priority.DETAIL));
+
+        assertEquals(4, server.getRequestCount());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void retryAfterHoldsEveryRequest() throws Exception {
+        RateLimitInterceptor limiter =
+                new RateLimitInterceptor(10, 10, 1, 200, TimeUnit.MILLISECONDS);
+        OkHttpClient client = newClient(limiter);
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "5"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = client.newCall(get(null)).execute()) {
+            assertEquals(429, response.code());
+        }
+        try {
+            execute(client, get(RequestScheduler.Priority.DETAIL));
+            fail("request sent before Retry-After passed");
+        } catch (RateLimitedException expected) {
+        }
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, limiter.getTokens(), 1);
+    }
+
+    @Test
+    public void priorityHeaderIsNotSent() throws Exception {
+        OkHttpClient client = newClient(
+                new RateLimitInterceptor(10, 10, 1, 1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        execute(client, get(RequestScheduler.Priority.VISIBLE_PAGE));
+
+        assertNull(server.takeRequest().getHeader(RateLimitInterceptor.PRIORITY_HEADER));
+    }
+
+    @Test
+    public void everyRetryTakesAToken() throws Exception {
+        // A single token, practically no refill
+        RateLimitInterceptor limiter =
+                new RateLimitInterceptor(1, 1, TimeUnit.HOURS.toMillis(1), 50,
+                        TimeUnit.MILLISECONDS);
+        OkHttpClient client = newRetryingClient(limiter, 3);
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try {
+            execute(client, get(RequestScheduler.Priority.VISIBLE_PAGE));
+            fail("retry sent without a token");
+        } catch (RateLimitedException expected) {
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void retryOfA429WaitsForRetryAfter() throws Exception {
+        RateLimitInterceptor limiter =
+                new RateLimitInterceptor(10, 10, 1, 2000, TimeUnit.MILLISECONDS);
+        OkHttpClient client = newRetryingClient(limiter, 2);
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        long start = System.nanoTime();
+        execute(client, get(null));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("retried before Retry-After: " + elapsedMillis, elapsedMillis >= 900);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void cachedResponsesTakeNoToken() throws Exception {
+        // A single token, practically no refill
+        RateLimitInterceptor limiter =
+                new RateLimitInterceptor(1, 1, TimeUnit.HOURS.toMillis(1), 50,
+                        TimeUnit.MILLISECONDS);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir.getRoot(), 1024 * 1024))
+                .addInterceptor(limiter)
+                .build();
+        server.enqueue(new MockResponse().setBody("ok").setHeader("Cache-Control", "max-age=60"));
+
+        execute(client, get(null));
+        // Fresh in the cache, answered although the bucket is empty
+        execute(client, get(RequestScheduler.Priority.VISIBLE_PAGE));
+        execute(client, get(null).newBuilder().cacheControl(CacheControl.FORCE_CACHE).build());
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, limiter.getThrottledCount());
+        assertEquals(0, limiter.getTokens(), 0.01);
+    }
+
+    @Test
+    public void unknownPriorityCountsAsForeground() throws Exception {
+        // 4 tokens with a reserve of 1, practically no refill
+        RateLimitInterceptor limiter =
+                new RateLimitInterceptor(4, 1, TimeUnit.HOURS.toMillis(1), 50,
+                        TimeUnit.MILLISECONDS);
+        OkHttpClient client = newClient(limiter);
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody("ok"));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            execute(client, get(RequestScheduler.Priority.PREFETCH));
+        }
+        // Takes the reserved token instead of failing the call
+        execute(client, new Request.Builder()
+                .url(server.url("/3/movie/popular"))
+                .header(RateLimitInterceptor.PRIORITY_HEADER, "SOMEDAY")
+                .build());
+
+        assertEquals(4, server.getRequestCount());
+        assertEquals(0, limiter.getRejectedCount());
+    }
+
+    private static OkHttpClient newClient(RateLimitInterceptor limiter) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(limiter)
+                .build();
+    }
+
+    private static OkHttpClient newRetryingClient(RateLimitInterceptor limiter,
+                                                  int maxAttempts) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new RetryInterceptor(maxAttempts, 1, 1))
+                .addInterceptor(limiter)
+                .build();
+    }
+
+    private Request get(RequestScheduler.Priority priority) {
+        Request.Builder builder = new Request.Builder().url(server.url("/3/movie/popular"));
+        if (priority != null) {
+            builder.header(RateLimitInterceptor.PRIORITY_HEADER, priority.name());
+        }
+        return builder.build();
+    }
+
+    private static void execute(OkHttpClient client, Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            assertEquals(200, response.code());
+        }
+    }
+}
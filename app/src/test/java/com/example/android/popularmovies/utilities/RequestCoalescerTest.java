@@ -0,0 +1,191 @@
+package com.example.android.popularmovies.utilities;
+
+import com.example.android.popularmovies.data.Movie;
+import com.example.android.popularmovies.data.Movies;
+import com.example.android.popularmovies.utilities.RequestScheduler.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks against a local server that callers asking for the same key at the same
+ * time share one request.
+ */
+public class RequestCoalescerTest {
+    private static final String MOVIE_JSON = "{\"id\":550,\"title\":\"Fight Club\"}";
+    private static final String PAGE_JSON = "{\"results\":[{\"id\":550,\"title\":\"Fight Club\"}]}";
+
+    private MockWebServer server;
+    private MovieDbService service;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/3/movie/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(MovieDbService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentDetailsCallsShareOneRequest() throws Exception {
+        // Keep the response on the wire long enough for every caller to arrive
+        server.enqueue(new MockResponse()
+                .setBody(MOVIE_JSON)
+                .setBodyDelay(300, TimeUnit.MILLISECONDS));
+        RequestCoalescer<Movie> coalescer = new RequestCoalescer<>(new RequestScheduler(4));
+        List<Movie> results = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            coalescer.enqueue("details:550", Priority.DETAIL, this,
+                    () -> service.getDetails("550", "key", "reviews,videos", null),
+                    collect(results, done));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(3, results.size());
+        assertSame(results.get(0), results.get(1));
+        assertSame(results.get(0), results.get(2));
+        assertEquals(550, results.get(0).getId());
+        assertFalse(coalescer.isInFlight("details:550"));
+    }
+
+    @Test
+    public void differentKeysAreNotCoalesced() throws Exception {
+        server.enqueue(new MockResponse().setBody(PAGE_JSON));
+        server.enqueue(new MockResponse().setBody(PAGE_JSON));
+        RequestCoalescer<Movies> coalescer = new RequestCoalescer<>(new RequestScheduler(4));
+        List<Movies> results = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+
+        coalescer.enqueue("popular:1", Priority.VISIBLE_PAGE, this,
+                () -> service.getSortedMovies("popular", "key", "1", null),
+                collect(results, done));
+        coalescer.enqueue("popular:2", Priority.VISIBLE_PAGE, this,
+                () -> service.getSortedMovies("popular", "key", "2", null),
+                collect(results, done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void keyIsReleasedAfterCompletion() throws Exception {
+        server.enqueue(new MockResponse().setBody(PAGE_JSON));
+        server.enqueue(new MockResponse().setBody(PAGE_JSON));
+        RequestCoalescer<Movies> coalescer = new RequestCoalescer<>(new RequestScheduler(4));
+        List<Movies> results = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            coalescer.enqueue("popular:1", Priority.VISIBLE_PAGE, this,
+                    () -> service.getSortedMovies("popular", "key", "1", null),
+                    collect(results, done));
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(2, server.getRequestCount());
+        assertNotSame(results.get(0), results.get(1));
+    }
+
+    @Test
+    public void failureIsSharedByEveryCaller() throws Exception {
+        // Drop the connection halfway through a slow body
+        server.enqueue(new MockResponse()
+                .setBody(MOVIE_JSON)
+                .setBodyDelay(300, TimeUnit.MILLISECONDS)
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        RequestCoalescer<Movie> coalescer = new RequestCoalescer<>(new RequestScheduler(4));
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        Callback<Movie> callback = new Callback<Movie>() {
+            @Override
+            public void onResponse(Call<Movie> call, Response<Movie> response) {
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<Movie> call, Throwable t) {
+                failures.add(t);
+                done.countDown();
+            }
+        };
+
+        coalescer.enqueue("details:550", Priority.DETAIL, this,
+                () -> service.getDetails("550", "key", "reviews,videos", null), callback);
+        coalescer.enqueue("details:550", Priority.DETAIL, this,
+                () -> service.getDetails("550", "key", "reviews,videos", null), callback);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(2, failures.size());
+        assertSame(failures.get(0), failures.get(1));
+    }
+
+    @Test
+    public void lastOwnerLeavingCancelsCall() throws Exception {
+        server.enqueue(new MockResponse()
+                .setBody(MOVIE_JSON)
+                .setBodyDelay(300, TimeUnit.MILLISECONDS));
+        RequestCoalescer<Movie> coalescer = new RequestCoalescer<>(new RequestScheduler(4));
+        List<Movie> results = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Object firstOwner = new Object();
+        Object secondOwner = new Object();
+
+        coalescer.enqueue("details:550", Priority.DETAIL, firstOwner,
+                () -> service.getDetails("550", "key", "reviews,videos", null),
+                collect(results, done));
+        coalescer.enqueue("details:550", Priority.DETAIL, secondOwner,
+                () -> service.getDetails("550", "key", "reviews,videos", null),
+                collect(results, done));
+        coalescer.cancelAll(firstOwner);
+        assertTrue(coalescer.isInFlight("details:550"));
+        coalescer.cancelAll(secondOwner);
+
+        assertFalse(coalescer.isInFlight("details:550"));
+        assertFalse(done.await(600, TimeUnit.MILLISECONDS));
+        assertTrue(results.isEmpty());
+    }
+
+    private static <T> Callback<T> collect(List<T> results, CountDownLatch done) {
+        return new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                results.add(response.body());
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                done.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.popularmovies.utilities;
+
+import com.example.android.popularmovies.data.Movies;
+import com.example.android.popularmovies.utilities.RequestScheduler.Priority;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks ordering and pre-emption of the scheduler against a local server that
+ * answers every page slowly.
+ */
+public class RequestSchedulerTest {
+    private static final String PAGE_JSON = "{\"results\":[]}";
+
+    private MockWebServer server;
+    private MovieDbService service;
+    private final List<String> completed = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setBody(PAGE_JSON)
+                        .setBodyDelay(200, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/3/movie/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(MovieDbService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void queuedCallsStartByPriority() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        CountDownLatch done = new CountDownLatch(3);
+
+        scheduler.enqueue(Priority.VISIBLE_PAGE, page("1"), record("1", done));
+        scheduler.enqueue(Priority.BACKGROUND_SYNC, page("2"), record("2", done));
+        scheduler.enqueue(Priority.VISIBLE_PAGE, page("3"), record("3", done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("1", completed.get(0));
+        assertEquals("3", completed.get(1));
+        assertEquals("2", completed.get(2));
+    }
+
+    @Test
+    public void urgentCallPreemptsSpeculativeWork() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        scheduler.enqueue(Priority.PREFETCH, page("5"), record("prefetch", done));
+        scheduler.enqueue(Priority.DETAIL, page("1"), record("detail", done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getPreemptedCount());
+        // The pre-empted page was sent again once the detail call was done
+        assertEquals("detail", completed.get(0));
+        assertEquals("prefetch", completed.get(1));
+    }
+
+    @Test
+    public void visiblePageIsNotPreempted() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        CountDownLatch done = new CountDownLatch(2);
+
+        scheduler.enqueue(Priority.VISIBLE_PAGE, page("1"), record("page", done));
+        scheduler.enqueue(Priority.DETAIL, page("2"), record("detail", done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getPreemptedCount());
+        assertEquals("page", completed.get(0));
+    }
+
+    @Test
+    public void cancelledJobIsNotDelivered() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        CountDownLatch done = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        RequestScheduler.Job<Movies> job =
+                scheduler.enqueue(Priority.PREFETCH, page("1"), record("cancelled", cancelled));
+        scheduler.enqueue(Priority.PREFETCH, page("2"), record("next", done));
+        scheduler.cancel(job);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelled.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, completed.size());
+    }
+
+    private Call<Movies> page(String page) {
+        return service.getSortedMovies("popular", "key", page, null);
+    }
+
+    private Callback<Movies> record(String name, CountDownLatch done) {
+        return new Callback<Movies>() {
+            @Override
+            public void onResponse(Call<Movies> call, Response<Movies> response) {
+                completed.add(name);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<Movies> call, Throwable t) {
+                completed.add(name + " failed");
+                done.countDown();
+            }
+        };
+    }
+}
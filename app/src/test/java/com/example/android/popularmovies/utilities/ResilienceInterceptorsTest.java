@@ -0,0 +1,182 @@
+package com.example.android.popularmovies.utilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the retry and circuit breaker interceptors against a local server that
+ * injects errors and dropped connections.
+ */
+public class ResilienceInterceptorsTest {
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void retryRecoversFromTransientFailures() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient()
+                .addInterceptor(new RetryInterceptor(3, 1, 5))
+                .build();
+
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void retryGivesUpAfterMaxAttempts() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        OkHttpClient client = newClient()
+                .addInterceptor(new RetryInterceptor(3, 1, 5))
+                .build();
+
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void nonIdempotentRequestsAreNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("ok"));
+        OkHttpClient client = newClient()
+                .addInterceptor(new RetryInterceptor(3, 1, 5))
+                .build();
+        Request post = new Request.Builder()
+                .url(server.url("/3/movie/550"))
+                .post(RequestBody.create(MediaType.parse("application/json"), "{}"))
+                .build();
+
+        try (Response response = client.newCall(post).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        OkHttpClient client = newClient()
+                .addInterceptor(new RetryInterceptor(3, 1, 5))
+                .build();
+
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(404, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void breakerOpensAndStopsCallingServer() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("ok"));
+        CircuitBreakerInterceptor breaker =
+                new CircuitBreakerInterceptor(2, 1, TimeUnit.MINUTES);
+        OkHttpClient client = newClient().addInterceptor(breaker).build();
+
+        client.newCall(get()).execute().close();
+        try {
+            client.newCall(get()).execute();
+            fail("Dropped connection should fail");
+        } catch (IOException expected) {
+            // Second failure opens the circuit
+        }
+        assertEquals(CircuitBreakerInterceptor.State.OPEN, breaker.getState());
+        try {
+            client.newCall(get()).execute();
+            fail("Open circuit should reject the call");
+        } catch (CircuitOpenException expected) {
+            // Not sent
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void trialRequestClosesCircuit() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("ok"));
+        CircuitBreakerInterceptor breaker =
+                new CircuitBreakerInterceptor(1, 50, TimeUnit.MILLISECONDS);
+        OkHttpClient client = newClient().addInterceptor(breaker).build();
+
+        client.newCall(get()).execute().close();
+        assertEquals(CircuitBreakerInterceptor.State.OPEN, breaker.getState());
+        Thread.sleep(80);
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(CircuitBreakerInterceptor.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void openBreakerServesCachedCopy() throws Exception {
+        // Cached copy is stale at once, so every later call goes to the server
+        server.enqueue(new MockResponse()
+                .setBody("cached")
+                .addHeader("Cache-Control", "max-age=0"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("fresh"));
+        CircuitBreakerInterceptor breaker =
+                new CircuitBreakerInterceptor(2, 1, TimeUnit.MINUTES);
+        OkHttpClient client = newClient()
+                .cache(new Cache(Files.createTempDirectory("http").toFile(), 1024 * 1024))
+                .addInterceptor(new StaleIfErrorInterceptor())
+                .addInterceptor(breaker)
+                .addInterceptor(new RetryInterceptor(1, 1, 1))
+                .build();
+
+        for (int i = 0; i < 4; i++) {
+            try (Response response = client.newCall(get()).execute()) {
+                assertEquals(200, response.code());
+                assertEquals("cached", response.body().string());
+            }
+        }
+        assertEquals(CircuitBreakerInterceptor.State.OPEN, breaker.getState());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    private OkHttpClient.Builder newClient() {
+        // OkHttp's own silent retry would hide the injected connection failures
+        return new OkHttpClient.Builder().retryOnConnectionFailure(false);
+    }
+
+    private Request get() {
+        return new Request.Builder().url(server.url("/3/movie/popular?page=1")).build();
+    }
+}